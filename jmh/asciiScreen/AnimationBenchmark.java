@@ -0,0 +1,64 @@
+package asciiscreen;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures advancing the animations of a 200x60 screen by one frame at 60 frames per second.
+ * Every animation cycles the colors of a 4x1 section, with step times spread from 0.05 to 1 second,
+ * so only some of them are due on each frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimationBenchmark {
+	private static final int WIDTH = 200;
+	private static final int HEIGHT = 60;
+
+	/**
+	 * The number of running animations.
+	 */
+	@Param({"100", "3000"})
+	public int animations;
+
+	private AsciiScreen screen;
+
+	@Setup
+	public void setUp() {
+		MockGL.install();
+		screen = new AsciiScreen(new ArrayCellBuffer(WIDTH, HEIGHT), Benchmarks.FONT);
+		int[] colors = { ColorPalette.RED, ColorPalette.YELLOW, ColorPalette.GREEN, ColorPalette.CYAN, ColorPalette.BLUE };
+		Random random = new Random(1);
+		for (int i = 0; i < animations; i++) {
+			int cell = i * 4 % (WIDTH * HEIGHT);
+			float stepTime = 0.05f + random.nextFloat() * 0.95f;
+			screen.addAnimation(new CellAnimation.ColorCycle(cell % WIDTH, cell / WIDTH, 4, 1, stepTime, colors, i % 2 == 0, -1));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		screen.dispose();
+	}
+
+	@Benchmark
+	public AsciiScreen update() {
+		screen.updateAnimations(1 / 60f);
+		return screen;
+	}
+}
@@ -0,0 +1,68 @@
+package asciiscreen;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing a screen full of UTF-8 ANSI art: box drawing and shade characters beyond ASCII,
+ * plain text and a color change every eight cells.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnsiParserBenchmark {
+	/**
+	 * The size of the screen in characters.
+	 */
+	@Param({"80x24", "200x60"})
+	public String size;
+
+	private AnsiParser parser;
+	private CellBuffer cells;
+	private DirtyCells dirty;
+	private ByteBuffer bytes;
+
+	@Setup
+	public void setUp() {
+		int width = Benchmarks.width(size);
+		int height = Benchmarks.height(size);
+		parser = new AnsiParser(Benchmarks.FONT, true);
+		cells = new ArrayCellBuffer(width, height);
+		dirty = new DirtyCells(width, height);
+
+		String art = "╔═╗░▒▓ text ";
+		StringBuilder text = new StringBuilder();
+		for (int y = 0; y < height; y++) {
+			text.append("\u001b[").append(y + 1).append(";1H");
+			for (int x = 0; x < width; x++) {
+				if (x % 8 == 0)
+					text.append("\u001b[").append(31 + (x / 8 + y) % 7).append('m');
+				text.append(art.charAt((x + y) % art.length()));
+			}
+		}
+		bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Benchmark
+	public CellBuffer parse() {
+		bytes.rewind();
+		parser.parse(bytes, cells, dirty);
+		dirty.clear();
+		return cells;
+	}
+}
@@ -0,0 +1,28 @@
+package asciiscreen;
+
+/**
+ * What the benchmarks share.
+ */
+final class Benchmarks {
+	/**
+	 * The code page 437 font, loaded from the sources since benchmarks run from the project's directory.
+	 */
+	static final AsciiFont FONT = new AsciiFont("src/asciiScreen/cp437.png", 9, 16, 32, 256, 7, 7);
+
+	private Benchmarks() {
+	}
+
+	/**
+	 * Gets the width of a size given as width x height, e.g. 80x24.
+	 */
+	static int width(String size) {
+		return Integer.parseInt(size.substring(0, size.indexOf('x')));
+	}
+
+	/**
+	 * Gets the height of a size given as width x height, e.g. 80x24.
+	 */
+	static int height(String size) {
+		return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+	}
+}
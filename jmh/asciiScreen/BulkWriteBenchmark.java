@@ -0,0 +1,100 @@
+package asciiscreen;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares filling a whole screen one character at a time against the span writes and blit, which check their arguments once.
+ * Every operation writes every cell with content that differs from the previous operation's.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkWriteBenchmark {
+	/**
+	 * The size of the screen in characters.
+	 */
+	@Param({"80x24", "200x60"})
+	public String size;
+
+	private AsciiScreen screen;
+	private int width;
+	private int height;
+	private char[][] rows;
+	private String[] strings;
+	private CellBuffer[] panels;
+	private boolean odd;
+
+	@Setup
+	public void setUp() {
+		MockGL.install();
+		width = Benchmarks.width(size);
+		height = Benchmarks.height(size);
+		screen = new AsciiScreen(new ArrayCellBuffer(width, height), Benchmarks.FONT);
+
+		rows = new char[2][width];
+		Arrays.fill(rows[0], 'a');
+		Arrays.fill(rows[1], 'b');
+		// the String overloads stop before the last column
+		strings = new String[] { new String(rows[0], 0, width - 1), new String(rows[1], 0, width - 1) };
+		panels = new CellBuffer[2];
+		for (int i = 0; i < 2; i++) {
+			panels[i] = new ArrayCellBuffer(width, height);
+			panels[i].fill(0, 0, width, height, rows[i][0], ColorPalette.WHITE, ColorPalette.BLACK);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		screen.dispose();
+	}
+
+	/**
+	 * The way a screen was filled before the span writes, every character checked and stored on its own.
+	 */
+	@Benchmark
+	public AsciiScreen perCharacter() {
+		char[] row = rows[(odd = !odd) ? 1 : 0];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++)
+				screen.write(row[x], x, y, AsciiScreen.white, AsciiScreen.black);
+		}
+		return screen;
+	}
+
+	@Benchmark
+	public AsciiScreen string() {
+		String row = strings[(odd = !odd) ? 1 : 0];
+		for (int y = 0; y < height; y++)
+			screen.write(row, 0, y, AsciiScreen.white, AsciiScreen.black);
+		return screen;
+	}
+
+	@Benchmark
+	public AsciiScreen charArray() {
+		char[] row = rows[(odd = !odd) ? 1 : 0];
+		for (int y = 0; y < height; y++)
+			screen.write(row, 0, width, 0, y, AsciiScreen.white, AsciiScreen.black);
+		return screen;
+	}
+
+	@Benchmark
+	public AsciiScreen blit() {
+		return screen.blit(panels[(odd = !odd) ? 1 : 0], 0, 0, 0, 0, width, height);
+	}
+}
@@ -0,0 +1,50 @@
+package asciiscreen;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures recording a frame's stats on the render thread and reading the latest frame back.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameStatsHistoryBenchmark {
+	private FrameStatsHistory history;
+	private FrameStats recorded;
+	private FrameStats read;
+
+	@Setup
+	public void setUp() {
+		history = new FrameStatsHistory(128);
+		recorded = new FrameStats();
+		recorded.paintNanos = 1000;
+		recorded.dirtyCells = 42;
+		read = new FrameStats();
+		for (int i = 0; i < 128; i++)
+			history.record(recorded);
+	}
+
+	@Benchmark
+	public FrameStats record() {
+		history.record(recorded);
+		return recorded;
+	}
+
+	@Benchmark
+	public boolean get() {
+		return history.get(history.getFrameCount() - 1, read);
+	}
+}
@@ -0,0 +1,54 @@
+package asciiscreen;
+
+import com.badlogic.gdx.Gdx;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading the glyph atlas of a font that no screen uses yet, with and without the converted image in the cache.
+ * On {@link MockGL} the texture upload costs nothing, what is measured is reading, checking, decoding and converting the image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GlyphAtlasBenchmark {
+	/**
+	 * Whether the converted image is in the cache already.
+	 */
+	@Param({"true", "false"})
+	public boolean cached;
+
+	@Setup
+	public void setUp() {
+		MockGL.install();
+		// fills the cache
+		GlyphAtlas.obtain(Benchmarks.FONT).release();
+	}
+
+	@Setup(Level.Invocation)
+	public void dropCache() {
+		if (!cached)
+			Gdx.files.local(".asciiscreen/").deleteDirectory();
+	}
+
+	@Benchmark
+	public GlyphAtlas load() {
+		GlyphAtlas atlas = GlyphAtlas.obtain(Benchmarks.FONT);
+		atlas.release();
+		return atlas;
+	}
+}
@@ -0,0 +1,106 @@
+package asciiscreen;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Graphics;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.GL20;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+
+/**
+ * A GL that draws nothing, so screens can be created and painted without a GL context and only their CPU time is measured.
+ * Every object gets a handle of its own, shaders compile and link, frame buffers are complete and draw calls are counted.
+ * The graphics report float textures as supported, so float frame buffers can be created as well.
+ */
+class MockGL implements InvocationHandler {
+	private static final int MAX_TEXTURE_SIZE = 16384;
+
+	private static MockGL installed;
+
+	private int handles;
+	private long drawCalls;
+
+	/**
+	 * Starts a headless application, unless one runs already, and makes the mock its GL.
+	 * @return
+	 */
+	static synchronized MockGL install() {
+		if (installed == null) {
+			HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+			// the application never renders, the benchmarks drive the screens themselves
+			config.updatesPerSecond = -1;
+			new HeadlessApplication(new ApplicationAdapter() {}, config);
+			installed = new MockGL();
+			GL20 gl = (GL20)Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class<?>[] { GL20.class }, installed);
+			Gdx.gl = gl;
+			Gdx.gl20 = gl;
+			Gdx.graphics = withFloatTextures(Gdx.graphics);
+		}
+		return installed;
+	}
+
+	/**
+	 * Wraps the graphics so they support every extension, which is only ever asked for float textures.
+	 */
+	private static Graphics withFloatTextures(final Graphics graphics) {
+		return (Graphics)Proxy.newProxyInstance(Graphics.class.getClassLoader(), new Class<?>[] { Graphics.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("supportsExtension"))
+					return true;
+				try {
+					return method.invoke(graphics, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Gets the number of draw calls so far.
+	 * @return
+	 */
+	long getDrawCalls() {
+		return drawCalls;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) {
+		String name = method.getName();
+		if (name.equals("glDrawElements") || name.equals("glDrawArrays")) {
+			drawCalls++;
+			return null;
+		}
+		if (name.equals("glCheckFramebufferStatus"))
+			return GL20.GL_FRAMEBUFFER_COMPLETE;
+
+		if (name.equals("glGetShaderiv") || name.equals("glGetProgramiv")) {
+			// compiled and linked, without any attributes or uniforms to ask about
+			int parameter = (Integer)args[1];
+			boolean count = parameter == GL20.GL_ACTIVE_ATTRIBUTES || parameter == GL20.GL_ACTIVE_UNIFORMS;
+			((IntBuffer)args[2]).put(0, count ? 0 : GL20.GL_TRUE);
+			return null;
+		}
+		if (name.equals("glGetIntegerv")) {
+			((IntBuffer)args[1]).put(0, (Integer)args[0] == GL20.GL_MAX_TEXTURE_SIZE ? MAX_TEXTURE_SIZE : 0);
+			return null;
+		}
+
+		Class<?> type = method.getReturnType();
+		if (type == int.class)
+			return name.startsWith("glGen") || name.startsWith("glCreate") ? ++handles : 0;
+		if (type == boolean.class)
+			return false;
+		if (type == float.class)
+			return 0f;
+		if (type == String.class)
+			return "";
+		return null;
+	}
+}
@@ -0,0 +1,86 @@
+package asciiscreen;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures painting a frame after a share of the cells changed, through the default sprite batch renderer on {@link MockGL},
+ * so what is measured is the CPU time of building and submitting the quads.
+ * The changed cells are spread evenly over the screen. Changing them is part of every operation,
+ * {@link #change()} measures that alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaintBenchmark {
+	/**
+	 * The size of the screen in characters.
+	 */
+	@Param({"80x24", "200x60", "400x225"})
+	public String size;
+
+	/**
+	 * The share of the cells that change before every paint, in percent.
+	 */
+	@Param({"0", "10", "100"})
+	public int dirtyPercent;
+
+	private AsciiScreen screen;
+	// the cells to change, x and y of each
+	private int[] changes;
+	private boolean odd;
+
+	@Setup
+	public void setUp() {
+		MockGL.install();
+		int width = Benchmarks.width(size);
+		int height = Benchmarks.height(size);
+		screen = new AsciiScreen(new ArrayCellBuffer(width, height), Benchmarks.FONT);
+
+		int cells = width * height;
+		int count = cells * dirtyPercent / 100;
+		changes = new int[count * 2];
+		for (int i = 0; i < count; i++) {
+			int cell = (int)((long)i * cells / count);
+			changes[i * 2] = cell % width;
+			changes[i * 2 + 1] = cell / width;
+		}
+		// the first paint creates the frame buffer and draws every cell
+		screen.paint(0);
+	}
+
+	@TearDown
+	public void tearDown() {
+		screen.dispose();
+	}
+
+	@Benchmark
+	public AsciiScreen paint() {
+		change();
+		screen.paint(0);
+		return screen;
+	}
+
+	@Benchmark
+	public AsciiScreen change() {
+		char character = (odd = !odd) ? '#' : '.';
+		int foreground = odd ? ColorPalette.BRIGHT_YELLOW : ColorPalette.WHITE;
+		for (int i = 0; i < changes.length; i += 2)
+			screen.write(character, changes[i], changes[i + 1], foreground, ColorPalette.BLACK);
+		return screen;
+	}
+}
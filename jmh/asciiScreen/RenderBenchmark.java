@@ -0,0 +1,70 @@
+package asciiscreen;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a whole frame, painting a tenth of the cells into the frame buffer and drawing it to the window,
+ * with either frame buffer format. On {@link MockGL} this is the CPU time of the frame, the GPU's fill and blit cost isn't included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+	/**
+	 * The size of the screen in characters.
+	 */
+	@Param({"80x24", "200x60"})
+	public String size;
+
+	/**
+	 * Whether the frame buffer holds float pixels rather than RGBA8888.
+	 */
+	@Param({"false", "true"})
+	public boolean floatFrameBuffer;
+
+	private AsciiScreen screen;
+	private int width;
+	private int height;
+	private int frame;
+
+	@Setup
+	public void setUp() {
+		MockGL.install();
+		width = Benchmarks.width(size);
+		height = Benchmarks.height(size);
+		screen = new AsciiScreen(new ArrayCellBuffer(width, height), Benchmarks.FONT);
+		screen.setFloatFrameBuffer(floatFrameBuffer);
+		screen.render(0);
+	}
+
+	@TearDown
+	public void tearDown() {
+		screen.dispose();
+	}
+
+	@Benchmark
+	public AsciiScreen render() {
+		// every tenth cell, shifted each frame so other cells change, and flipped each time round
+		int offset = frame % 10;
+		char character = (frame++ / 10 & 1) == 0 ? '#' : '.';
+		for (int cell = offset; cell < width * height; cell += 10)
+			screen.write(character, cell % width, cell / width, ColorPalette.BRIGHT_YELLOW, ColorPalette.BLACK);
+		screen.render(1 / 60f);
+		return screen;
+	}
+}
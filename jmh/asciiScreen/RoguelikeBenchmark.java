@@ -0,0 +1,210 @@
+package asciiscreen;
+
+import com.badlogic.gdx.graphics.Color;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures rendering an 80x24 roguelike screen through the default sprite batch renderer on {@link MockGL}:
+ * a message line, two rooms joined by a corridor, one of them lit, and a two row status bar.
+ * A turn moves the player and three monsters one step, updates the turn counter and the message line.
+ * A switch shows an inventory over the map or the map again, which changes most of the screen.
+ * The quads, draw calls and drawn cells per frame are reported as secondary results, see {@link FrameCounters}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoguelikeBenchmark {
+	private static final int WIDTH = 80;
+	private static final int HEIGHT = 24;
+	private static final String[] MESSAGES = {
+		"You hear a door open somewhere.",
+		"",
+		"The goblin misses you.",
+		"You hit the goblin.",
+	};
+
+	/**
+	 * What changes between frames, turn or switch.
+	 */
+	@Param({"turn", "switch"})
+	public String scene;
+
+	/**
+	 * Adds up the frame stats of the rendered frames, which include the final blit to the window.
+	 * JMH sums these over the measured iterations, dividing by frames gives the average per frame.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class FrameCounters {
+		private final FrameStats stats = new FrameStats();
+		public long frames;
+		public long quads;
+		public long drawCalls;
+		public long drawnCells;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			frames = 0;
+			quads = 0;
+			drawCalls = 0;
+			drawnCells = 0;
+		}
+
+		void count(FrameStatsHistory history) {
+			if (history.get(history.getFrameCount() - 1, stats)) {
+				frames++;
+				quads += stats.quads;
+				drawCalls += stats.drawCalls;
+				drawnCells += stats.drawnCells;
+			}
+		}
+	}
+
+	private final Color wall = new Color(AsciiScreen.white);
+	private final Color floor = new Color(AsciiScreen.brightBlack);
+	private final Color litFloor = new Color(0.15f, 0.15f, 0.2f, 1);
+	private final char[] map = new char[WIDTH * HEIGHT];
+	private final Color[] mapForeground = new Color[WIDTH * HEIGHT];
+	private final Color[] mapBackground = new Color[WIDTH * HEIGHT];
+	private AsciiScreen screen;
+	private int turn;
+	private int playerX;
+
+	@Setup
+	public void setUp() {
+		MockGL.install();
+		screen = new AsciiScreen(new ArrayCellBuffer(WIDTH, HEIGHT), Benchmarks.FONT);
+		screen.setStatsEnabled(true);
+
+		for (int i = 0; i < map.length; i++) {
+			map[i] = ' ';
+			mapForeground[i] = AsciiScreen.black;
+			mapBackground[i] = AsciiScreen.black;
+		}
+		room(2, 2, 24, 9, AsciiScreen.black);
+		room(40, 5, 36, 14, litFloor);
+		// the corridor between them
+		for (int x = 26; x < 40; x++)
+			set(x, 6, '.', floor, AsciiScreen.black);
+		set(25, 6, '+', AsciiScreen.yellow, AsciiScreen.black);
+		set(40, 6, '+', AsciiScreen.yellow, AsciiScreen.black);
+		set(10, 5, '!', AsciiScreen.magenta, AsciiScreen.black);
+		set(60, 12, '$', AsciiScreen.brightYellow, litFloor);
+		set(70, 16, '>', AsciiScreen.white, litFloor);
+
+		drawMap();
+		screen.clear(' ', 0, 22, WIDTH, 2, AsciiScreen.brightWhite, AsciiScreen.blue);
+		screen.write("HP 12/20  MP 5/5  Str 14  Dex 12  Gold 37", 1, 22, AsciiScreen.brightWhite, AsciiScreen.blue);
+		screen.render(0);
+		playerX = 26;
+	}
+
+	private void room(int left, int top, int width, int height, Color background) {
+		for (int y = top; y < top + height; y++)
+			for (int x = left; x < left + width; x++) {
+				boolean edge = x == left || y == top || x == left + width - 1 || y == top + height - 1;
+				if (edge)
+					set(x, y, '#', wall, AsciiScreen.black);
+				else
+					set(x, y, '.', floor, background);
+			}
+	}
+
+	private void set(int x, int y, char character, Color foreground, Color background) {
+		int i = y * WIDTH + x;
+		map[i] = character;
+		mapForeground[i] = foreground;
+		mapBackground[i] = background;
+	}
+
+	/**
+	 * Draws the map from the message line down to the status bar.
+	 */
+	private void drawMap() {
+		for (int y = 1; y < 22; y++)
+			for (int x = 0; x < WIDTH; x++) {
+				int i = y * WIDTH + x;
+				screen.write(map[i], x, y, mapForeground[i], mapBackground[i]);
+			}
+	}
+
+	private void restore(int x, int y) {
+		int i = y * WIDTH + x;
+		screen.write(map[i], x, y, mapForeground[i], mapBackground[i]);
+	}
+
+	@TearDown
+	public void tearDown() {
+		screen.dispose();
+	}
+
+	@Benchmark
+	public AsciiScreen render(FrameCounters counters) {
+		turn++;
+		if (scene.equals("switch"))
+			switchScreen();
+		else
+			takeTurn();
+		screen.render(1 / 60f);
+		counters.count(screen.getStatsHistory());
+		return screen;
+	}
+
+	private void takeTurn() {
+		// the player walks the corridor to and fro
+		restore(playerX, 6);
+		int step = turn % 26;
+		playerX = 26 + (step < 13 ? step : 26 - step);
+		screen.write('@', playerX, 6, AsciiScreen.brightWhite, AsciiScreen.black);
+
+		// the monsters walk around small squares in the lit room
+		for (int m = 0; m < 3; m++) {
+			int left = 45 + m * 9;
+			restore(left + square(turn - 1), 9 + square(turn + 8));
+			screen.write((char)('g' + m), left + square(turn), 9 + square(turn + 9), AsciiScreen.brightGreen, litFloor);
+		}
+
+		String message = MESSAGES[turn / 4 % MESSAGES.length];
+		screen.clear(' ', 0, 0, WIDTH, 1, AsciiScreen.brightWhite, AsciiScreen.black);
+		screen.write(message, 0, 0, AsciiScreen.brightWhite, AsciiScreen.black);
+		screen.write("Turn " + turn, 60, 23, AsciiScreen.brightWhite, AsciiScreen.blue);
+	}
+
+	/**
+	 * Gets the offset on one side of a 4x4 square walked around in 12 steps, the other side is three steps behind.
+	 */
+	private static int square(int step) {
+		int s = step % 12;
+		return s < 3 ? s : s < 6 ? 3 : s < 9 ? 9 - s : 0;
+	}
+
+	private void switchScreen() {
+		if ((turn & 1) == 0) {
+			drawMap();
+			return;
+		}
+		screen.clear(' ', 0, 1, WIDTH, 21, AsciiScreen.white, AsciiScreen.blue);
+		screen.write("Inventory", 35, 2, AsciiScreen.brightWhite, AsciiScreen.blue);
+		String[] items = { "a - a rusty short sword", "b - leather armor (worn)", "c - 3 potions of healing",
+			"d - a scroll of teleportation", "e - 12 arrows", "f - a wooden bow" };
+		for (int i = 0; i < items.length; i++)
+			screen.write(items[i], 4, 4 + i, AsciiScreen.white, AsciiScreen.blue);
+	}
+}
@@ -0,0 +1,105 @@
+package asciiscreen;
+
+import com.badlogic.gdx.graphics.Color;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a lighting pass over the whole screen, shading every cell by its distance from a light that moves each frame,
+ * with the Color and the packed transformers, each on one thread and split over the common ForkJoinPool.
+ * The pool has as many threads as there are cores less one, pass e.g. -jvmArgsAppend -Djava.util.concurrent.ForkJoinPool.common.parallelism=N
+ * to JMH to see how it scales.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmark {
+	/**
+	 * The size of the screen in characters.
+	 */
+	@Param({"80x24", "400x225"})
+	public String size;
+
+	private AsciiScreen screen;
+	private int lightX;
+	private TileTransformer colorLight;
+	private PackedTileTransformer packedLight;
+
+	@Setup
+	public void setUp() {
+		MockGL.install();
+		final int width = Benchmarks.width(size);
+		final int height = Benchmarks.height(size);
+		screen = new AsciiScreen(new ArrayCellBuffer(width, height), Benchmarks.FONT);
+		screen.clear('.', AsciiScreen.white, AsciiScreen.blue);
+
+		colorLight = new TileTransformer() {
+			private final Color base = new Color(AsciiScreen.blue);
+
+			@Override
+			public void transformTile(int x, int y, AsciiCharacterData data) {
+				float light = light(x, y, width);
+				data.backgroundColor.set(base).mul(light, light, light, 1);
+			}
+		};
+		packedLight = new PackedTileTransformer() {
+			@Override
+			public void transformTile(int x, int y, PackedCharacterData data) {
+				data.backgroundColor = ColorPalette.shade(ColorPalette.BLUE, light(x, y, width));
+			}
+		};
+	}
+
+	private float light(int x, int y, int width) {
+		int dx = x - lightX % width;
+		int dy = y - 10;
+		return 1f / (1 + (dx * dx + dy * dy) * 0.01f);
+	}
+
+	@TearDown
+	public void tearDown() {
+		screen.dispose();
+	}
+
+	@Benchmark
+	public AsciiScreen color() {
+		lightX++;
+		screen.withEachTile(colorLight);
+		return screen;
+	}
+
+	@Benchmark
+	public AsciiScreen colorParallel() {
+		lightX++;
+		screen.withEachTileParallel(colorLight);
+		return screen;
+	}
+
+	@Benchmark
+	public AsciiScreen packed() {
+		lightX++;
+		screen.withEachPackedTile(packedLight);
+		return screen;
+	}
+
+	@Benchmark
+	public AsciiScreen packedParallel() {
+		lightX++;
+		screen.withEachPackedTileParallel(packedLight);
+		return screen;
+	}
+}
@@ -0,0 +1,90 @@
+package asciiscreen;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing to a whole screen: a string into every row, clearing it and transforming every tile.
+ * Each operation changes every cell, so the cost of marking them dirty is included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+	/**
+	 * The size of the screen in characters.
+	 */
+	@Param({"80x24", "200x60", "400x225"})
+	public String size;
+
+	private AsciiScreen screen;
+	private int width;
+	private int height;
+	// two rows of text to write in turns, write wants them to end before the last column
+	private String[] rows;
+	private boolean odd;
+	private TileTransformer identity;
+
+	@Setup
+	public void setUp() {
+		MockGL.install();
+		width = Benchmarks.width(size);
+		height = Benchmarks.height(size);
+		screen = new AsciiScreen(new ArrayCellBuffer(width, height), Benchmarks.FONT);
+
+		char[] chars = new char[width - 1];
+		Arrays.fill(chars, 'a');
+		String a = new String(chars);
+		Arrays.fill(chars, 'b');
+		rows = new String[] { a, new String(chars) };
+
+		identity = new TileTransformer() {
+			@Override
+			public void transformTile(int x, int y, AsciiCharacterData data) {
+			}
+		};
+	}
+
+	@TearDown
+	public void tearDown() {
+		screen.dispose();
+	}
+
+	@Benchmark
+	public AsciiScreen write() {
+		String row = rows[(odd = !odd) ? 1 : 0];
+		for (int y = 0; y < height; y++)
+			screen.write(row, 0, y, AsciiScreen.white, AsciiScreen.black);
+		return screen;
+	}
+
+	@Benchmark
+	public AsciiScreen clear() {
+		screen.setDefaultBackgroundColor((odd = !odd) ? AsciiScreen.blue : AsciiScreen.black);
+		return screen.clear();
+	}
+
+	/**
+	 * Transforms every tile without changing it, which is the cost of visiting them.
+	 */
+	@Benchmark
+	public AsciiScreen withEachTile() {
+		screen.withEachTile(identity);
+		return screen;
+	}
+}
@@ -0,0 +1,136 @@
+package asciiscreen;
+
+/**
+ * The running animations of a screen in a binary heap, ordered by when they change next.
+ * An update only runs the animations that are due, in time proportional to their number and the log of the total.
+ */
+class AnimationQueue {
+	private CellAnimation[] heap = new CellAnimation[16];
+	private int size;
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Gets when the next animation is due, the queue must not be empty.
+	 */
+	double getNextTime() {
+		return heap[0].next;
+	}
+
+	/**
+	 * Adds an animation that starts at the specified time and runs on the next update.
+	 */
+	void add(CellAnimation animation, double now, int layer) {
+		if (animation.isRunning())
+			throw new IllegalStateException("animation is running already." );
+
+		if (size == heap.length) {
+			CellAnimation[] grown = new CellAnimation[heap.length * 2];
+			System.arraycopy(heap, 0, grown, 0, size);
+			heap = grown;
+		}
+		animation.layer = layer;
+		animation.start = now;
+		animation.next = now;
+		animation.index = size;
+		heap[size++] = animation;
+		siftUp(animation.index);
+	}
+
+	/**
+	 * Removes a running animation, its cells stay as they are.
+	 * @return false if the animation wasn't running
+	 */
+	boolean remove(CellAnimation animation) {
+		int i = animation.index;
+		if (i < 0 || i >= size || heap[i] != animation)
+			return false;
+
+		removeAt(i);
+		return true;
+	}
+
+	void clear() {
+		for (int i = 0; i < size; i++) {
+			heap[i].index = -1;
+			heap[i] = null;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Runs every animation that is due by the specified time and reschedules or removes it.
+	 * @param layers the cells of every layer
+	 * @param dirty  the dirty cells of every layer
+	 * @return the number of animations run
+	 */
+	int update(double now, CellBuffer[] layers, DirtyCells[] dirty) {
+		int run = 0;
+		while (size > 0 && heap[0].next <= now) {
+			CellAnimation animation = heap[0];
+			double next = animation.animate(now - animation.start, layers[animation.layer], dirty[animation.layer]);
+			run++;
+			if (next < 0) {
+				removeAt(0);
+			} else {
+				// an animation that doesn't move on runs again on the next update, not again right away
+				animation.next = Math.max(animation.start + next, Math.nextUp(now));
+				siftDown(0);
+			}
+		}
+		return run;
+	}
+
+	private void removeAt(int i) {
+		CellAnimation removed = heap[i];
+		removed.index = -1;
+		size--;
+		if (i < size) {
+			CellAnimation last = heap[size];
+			heap[i] = last;
+			last.index = i;
+			heap[size] = null;
+			siftDown(i);
+			siftUp(last.index);
+		} else {
+			heap[size] = null;
+		}
+	}
+
+	private void siftUp(int i) {
+		CellAnimation animation = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (heap[parent].next <= animation.next)
+				break;
+
+			heap[i] = heap[parent];
+			heap[i].index = i;
+			i = parent;
+		}
+		heap[i] = animation;
+		animation.index = i;
+	}
+
+	private void siftDown(int i) {
+		CellAnimation animation = heap[i];
+		while (true) {
+			int child = i * 2 + 1;
+			if (child >= size)
+				break;
+
+			if (child + 1 < size && heap[child + 1].next < heap[child].next)
+				child++;
+			if (animation.next <= heap[child].next)
+				break;
+
+			heap[i] = heap[child];
+			heap[i].index = i;
+			i = child;
+		}
+		heap[i] = animation;
+		animation.index = i;
+	}
+}
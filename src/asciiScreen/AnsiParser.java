@@ -0,0 +1,567 @@
+package asciiscreen;
+
+import com.badlogic.gdx.utils.IntIntMap;
+import java.nio.ByteBuffer;
+
+/**
+ * Interprets text with ANSI escape sequences, e.g. the output of a tool or ANSI art, and stores it straight in a cell buffer.
+ * The parser is a state machine that keeps its state between calls, so the input can come in pieces of any size,
+ * even in the middle of an escape sequence or a UTF-8 character. Nothing gets allocated while parsing.
+ * <p>
+ * Understood are the SGR colors and attributes (16 colors, bright, 256 colors, 24-bit colors, bold, inverse),
+ * moving the cursor (CUU, CUD, CUF, CUB, CNL, CPL, CHA, CUP, HVP, VPA, saving and restoring it), erasing (ED, EL),
+ * carriage return, line feed, backspace and tab. Other sequences are skipped.
+ * A line feed also returns the cursor to the first column, and a line feed in the last row scrolls the cells up.
+ * <p>
+ * Bytes are either UTF-8 or, as in most ANSI art, code page 437 where each byte is a glyph.
+ * Unicode characters are drawn with the glyph the font maps them to, characters the font has no glyph for
+ * with the code page 437 glyph that looks like them if there is one (see {@link AnsiWriter#CP437}).
+ */
+public class AnsiParser {
+	private static final int MAX_PARAMETERS = 16;
+	private static final int MAX_PARAMETER = 65535;
+	private static final int TAB_WIDTH = 8;
+	private static final int[] COLORS = {
+		ColorPalette.BLACK, ColorPalette.RED, ColorPalette.GREEN, ColorPalette.YELLOW,
+		ColorPalette.BLUE, ColorPalette.MAGENTA, ColorPalette.CYAN, ColorPalette.WHITE,
+		ColorPalette.BRIGHT_BLACK, ColorPalette.BRIGHT_RED, ColorPalette.BRIGHT_GREEN, ColorPalette.BRIGHT_YELLOW,
+		ColorPalette.BRIGHT_BLUE, ColorPalette.BRIGHT_MAGENTA, ColorPalette.BRIGHT_CYAN, ColorPalette.BRIGHT_WHITE
+	};
+	// the code page 437 glyph of every character beyond ASCII that has one
+	private static final IntIntMap CP437_GLYPHS = new IntIntMap();
+
+	static {
+		for (int glyph = AnsiWriter.CP437.length() - 1; glyph > 0; glyph--) {
+			char c = AnsiWriter.CP437.charAt(glyph);
+			if (c >= 0x80)
+				CP437_GLYPHS.put(c, glyph);
+		}
+	}
+
+	private static final int GROUND = 0;
+	private static final int ESCAPE = 1;
+	private static final int CSI = 2;
+	// a control string such as an operating system command, skipped up to BEL or ST
+	private static final int STRING = 3;
+	private static final int STRING_ESCAPE = 4;
+
+	private final AsciiFont font;
+	private final boolean utf8;
+	private final int unknownGlyph;
+	private int state = GROUND;
+	private final int[] parameters = new int[MAX_PARAMETERS];
+	private int parameterCount;
+	private boolean privateSequence;
+	// the UTF-8 character being decoded and the number of its bytes still to come
+	private int codePoint;
+	private int pendingBytes;
+
+	private int defaultForeground = ColorPalette.WHITE;
+	private int defaultBackground = ColorPalette.BLACK;
+	private int foreground = defaultForeground;
+	// the number of the foreground among the 16 colors, so bold can brighten it, or -1
+	private int foregroundIndex = -1;
+	private int background = defaultBackground;
+	private boolean bold;
+	private boolean inverse;
+
+	// the cursor's column may be the width, the next character then wraps to the next row
+	private int cursorX;
+	private int cursorY;
+	private int savedX;
+	private int savedY;
+
+	// what the current parse call writes to
+	private CellBuffer cells;
+	private DirtyCells dirty;
+	private boolean rawGlyphs;
+
+	/**
+	 * @param font the font to look up the glyphs of characters in
+	 * @param utf8 whether bytes are UTF-8 rather than code page 437 glyphs
+	 */
+	public AnsiParser(AsciiFont font, boolean utf8) {
+		if (font == null)
+			throw new NullPointerException("font must not be null." );
+
+		this.font = font;
+		this.utf8 = utf8;
+		unknownGlyph = Math.max(font.glyphOf('?'), 0);
+	}
+
+	/**
+	 * Sets the colors SGR 0, 39 and 49 go back to, the current colors are reset to them.
+	 * @param foreground the packed foreground color
+	 * @param background the packed background color
+	 */
+	public void setDefaultColors(int foreground, int background) {
+		defaultForeground = foreground;
+		defaultBackground = background;
+		resetColors();
+	}
+
+	/**
+	 * Forgets any sequence that was cut off, resets the colors and moves the cursor to the upper left corner.
+	 */
+	public void reset() {
+		state = GROUND;
+		pendingBytes = 0;
+		resetColors();
+		cursorX = 0;
+		cursorY = 0;
+		savedX = 0;
+		savedY = 0;
+	}
+
+	public int getCursorX() {
+		return cursorX;
+	}
+
+	public int getCursorY() {
+		return cursorY;
+	}
+
+	/**
+	 * Sets where the next character goes.
+	 * @param x the column, the width of the cells to wrap before the next character
+	 * @param y the row
+	 */
+	public void setCursor(int x, int y) {
+		if (x < 0)
+			throw new IllegalArgumentException("x " + x + " must not be negative." );
+
+		if (y < 0)
+			throw new IllegalArgumentException("y " + y + " must not be negative." );
+
+		cursorX = x;
+		cursorY = y;
+	}
+
+	/**
+	 * Interprets all the remaining bytes of the buffer.
+	 * @param bytes the input, UTF-8 or code page 437 depending on how the parser was created
+	 * @param cells the cells to write to
+	 * @param dirty where to mark the cells that changed, or null
+	 */
+	public void parse(ByteBuffer bytes, CellBuffer cells, DirtyCells dirty) {
+		begin(cells, dirty);
+		rawGlyphs = !utf8;
+		while (bytes.hasRemaining()) {
+			int b = bytes.get() & 0xff;
+			if (!utf8 || b < 0x80 && pendingBytes == 0) {
+				consume(b);
+			} else if (pendingBytes > 0 && (b & 0xc0) == 0x80) {
+				codePoint = codePoint << 6 | b & 0x3f;
+				if (--pendingBytes == 0)
+					consume(codePoint);
+			} else {
+				if (pendingBytes > 0) {
+					// a character cut short
+					pendingBytes = 0;
+					consume(0xfffd);
+				}
+				if (b < 0x80) {
+					consume(b);
+				} else if (b >= 0xc0 && b < 0xe0) {
+					codePoint = b & 0x1f;
+					pendingBytes = 1;
+				} else if (b >= 0xe0 && b < 0xf0) {
+					codePoint = b & 0x0f;
+					pendingBytes = 2;
+				} else if (b >= 0xf0 && b < 0xf8) {
+					codePoint = b & 0x07;
+					pendingBytes = 3;
+				} else {
+					consume(0xfffd);
+				}
+			}
+		}
+		end();
+	}
+
+	/**
+	 * Interprets a section of characters.
+	 * @param chars the input
+	 * @param start the index of the first character
+	 * @param end   the index after the last character
+	 * @param cells the cells to write to
+	 * @param dirty where to mark the cells that changed, or null
+	 */
+	public void parse(CharSequence chars, int start, int end, CellBuffer cells, DirtyCells dirty) {
+		if (start < 0 || start > end || end > chars.length())
+			throw new IllegalArgumentException("range [" + start + "," + end + ") must lie within [0," + chars.length() + "]." );
+
+		begin(cells, dirty);
+		rawGlyphs = false;
+		for (int i = start; i < end; i++)
+			consume(chars.charAt(i));
+		end();
+	}
+
+	public void parse(CharSequence chars, CellBuffer cells, DirtyCells dirty) {
+		parse(chars, 0, chars.length(), cells, dirty);
+	}
+
+	private void begin(CellBuffer cells, DirtyCells dirty) {
+		this.cells = cells;
+		this.dirty = dirty;
+		cursorX = Math.min(cursorX, cells.getWidth());
+		cursorY = Math.min(cursorY, cells.getHeight() - 1);
+	}
+
+	private void end() {
+		cells = null;
+		dirty = null;
+	}
+
+	private void consume(int c) {
+		switch (state) {
+		case GROUND:
+			if (c >= 0x20 && (c != 0x7f || rawGlyphs))
+				print(c);
+			else
+				control(c);
+			break;
+		case ESCAPE:
+			escape(c);
+			break;
+		case CSI:
+			csi(c);
+			break;
+		case STRING:
+			if (c == 0x1b)
+				state = STRING_ESCAPE;
+			else if (c == 0x07)
+				state = GROUND;
+			break;
+		case STRING_ESCAPE:
+			state = c == '\\' ? GROUND : STRING;
+			break;
+		}
+	}
+
+	private void control(int c) {
+		int width = cells.getWidth();
+		switch (c) {
+		case 0x1b:
+			state = ESCAPE;
+			break;
+		case '\r':
+			cursorX = 0;
+			break;
+		case '\n':
+		case 0x0b:
+		case 0x0c:
+			cursorX = 0;
+			lineFeed();
+			break;
+		case '\b':
+			cursorX = Math.max(Math.min(cursorX, width - 1) - 1, 0);
+			break;
+		case '\t':
+			cursorX = Math.min((cursorX / TAB_WIDTH + 1) * TAB_WIDTH, width - 1);
+			break;
+		default:
+			// bell and the other controls don't show
+			break;
+		}
+	}
+
+	private void escape(int c) {
+		state = GROUND;
+		switch (c) {
+		case '[':
+			state = CSI;
+			parameterCount = 0;
+			parameters[0] = 0;
+			privateSequence = false;
+			break;
+		case ']':
+		case 'P':
+		case 'X':
+		case '^':
+		case '_':
+			state = STRING;
+			break;
+		case '7':
+			savedX = cursorX;
+			savedY = cursorY;
+			break;
+		case '8':
+			cursorX = savedX;
+			cursorY = savedY;
+			break;
+		case 'D':
+			lineFeed();
+			break;
+		case 'E':
+			cursorX = 0;
+			lineFeed();
+			break;
+		case 'M':
+			cursorY = Math.max(cursorY - 1, 0);
+			break;
+		case 'c':
+			resetColors();
+			clear(0, 0, cells.getWidth(), cells.getHeight());
+			cursorX = 0;
+			cursorY = 0;
+			break;
+		case 0x1b:
+			state = ESCAPE;
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void csi(int c) {
+		if (c >= '0' && c <= '9') {
+			if (parameterCount == 0)
+				parameterCount = 1;
+			int i = parameterCount - 1;
+			parameters[i] = Math.min(parameters[i] * 10 + c - '0', MAX_PARAMETER);
+		} else if (c == ';' || c == ':') {
+			if (parameterCount == 0)
+				parameterCount = 1;
+			if (parameterCount < MAX_PARAMETERS)
+				parameters[parameterCount++] = 0;
+		} else if (c >= '<' && c <= '?') {
+			privateSequence = true;
+		} else if (c >= 0x40 && c <= 0x7e) {
+			state = GROUND;
+			if (!privateSequence)
+				dispatch(c);
+		} else if (c == 0x1b) {
+			state = ESCAPE;
+		} else if (c < 0x20) {
+			control(c);
+		}
+		// intermediate bytes are skipped along with the sequence
+	}
+
+	private void dispatch(int c) {
+		int width = cells.getWidth();
+		int height = cells.getHeight();
+		int x = Math.min(cursorX, width - 1);
+		switch (c) {
+		case 'A':
+			cursorY = Math.max(cursorY - count(0), 0);
+			break;
+		case 'B':
+			cursorY = Math.min(cursorY + count(0), height - 1);
+			break;
+		case 'C':
+			cursorX = Math.min(x + count(0), width - 1);
+			break;
+		case 'D':
+			cursorX = Math.max(x - count(0), 0);
+			break;
+		case 'E':
+			cursorX = 0;
+			cursorY = Math.min(cursorY + count(0), height - 1);
+			break;
+		case 'F':
+			cursorX = 0;
+			cursorY = Math.max(cursorY - count(0), 0);
+			break;
+		case 'G':
+		case '`':
+			cursorX = Math.min(count(0), width) - 1;
+			break;
+		case 'H':
+		case 'f':
+			cursorY = Math.min(count(0), height) - 1;
+			cursorX = Math.min(count(1), width) - 1;
+			break;
+		case 'd':
+			cursorY = Math.min(count(0), height) - 1;
+			break;
+		case 'J':
+			if (parameter(0) == 0) {
+				clear(x, cursorY, width - x, 1);
+				clear(0, cursorY + 1, width, height - cursorY - 1);
+			} else if (parameter(0) == 1) {
+				clear(0, 0, width, cursorY);
+				clear(0, cursorY, x + 1, 1);
+			} else {
+				clear(0, 0, width, height);
+			}
+			break;
+		case 'K':
+			if (parameter(0) == 0)
+				clear(x, cursorY, width - x, 1);
+			else if (parameter(0) == 1)
+				clear(0, cursorY, x + 1, 1);
+			else
+				clear(0, cursorY, width, 1);
+			break;
+		case 'm':
+			selectGraphicRendition();
+			break;
+		case 's':
+			savedX = cursorX;
+			savedY = cursorY;
+			break;
+		case 'u':
+			cursorX = savedX;
+			cursorY = savedY;
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void selectGraphicRendition() {
+		int count = Math.max(parameterCount, 1);
+		for (int i = 0; i < count; i++) {
+			int p = parameters[i];
+			if (p == 0) {
+				resetColors();
+			} else if (p == 1) {
+				bold = true;
+			} else if (p == 22) {
+				bold = false;
+			} else if (p == 7) {
+				inverse = true;
+			} else if (p == 27) {
+				inverse = false;
+			} else if (p >= 30 && p <= 37) {
+				foregroundIndex = p - 30;
+				foreground = COLORS[foregroundIndex];
+			} else if (p == 39) {
+				foregroundIndex = -1;
+				foreground = defaultForeground;
+			} else if (p >= 90 && p <= 97) {
+				foregroundIndex = p - 90 + 8;
+				foreground = COLORS[foregroundIndex];
+			} else if (p >= 40 && p <= 47) {
+				background = COLORS[p - 40];
+			} else if (p == 49) {
+				background = defaultBackground;
+			} else if (p >= 100 && p <= 107) {
+				background = COLORS[p - 100 + 8];
+			} else if ((p == 38 || p == 48) && i + 2 < count && parameters[i + 1] == 5) {
+				int color = color256(parameters[i + 2]);
+				if (p == 38) {
+					foregroundIndex = -1;
+					foreground = color;
+				} else {
+					background = color;
+				}
+				i += 2;
+			} else if ((p == 38 || p == 48) && i + 4 < count && parameters[i + 1] == 2) {
+				int color = Math.min(parameters[i + 2], 255) << 24 | Math.min(parameters[i + 3], 255) << 16 | Math.min(parameters[i + 4], 255) << 8 | 0xff;
+				if (p == 38) {
+					foregroundIndex = -1;
+					foreground = color;
+				} else {
+					background = color;
+				}
+				i += 4;
+			}
+		}
+	}
+
+	private static int color256(int index) {
+		if (index < 16)
+			return COLORS[index];
+
+		if (index < 232) {
+			index -= 16;
+			return cubeLevel(index / 36) << 24 | cubeLevel(index / 6 % 6) << 16 | cubeLevel(index % 6) << 8 | 0xff;
+		}
+
+		int gray = 8 + Math.min(index - 232, 23) * 10;
+		return gray << 24 | gray << 16 | gray << 8 | 0xff;
+	}
+
+	private static int cubeLevel(int index) {
+		return index == 0 ? 0 : 55 + index * 40;
+	}
+
+	private void resetColors() {
+		foreground = defaultForeground;
+		foregroundIndex = -1;
+		background = defaultBackground;
+		bold = false;
+		inverse = false;
+	}
+
+	/**
+	 * Gets a parameter that counts something, where leaving it out or 0 mean 1.
+	 */
+	private int count(int i) {
+		return i < parameterCount && parameters[i] != 0 ? parameters[i] : 1;
+	}
+
+	private int parameter(int i) {
+		return i < parameterCount ? parameters[i] : 0;
+	}
+
+	private void print(int c) {
+		int glyph;
+		if (rawGlyphs) {
+			glyph = c;
+		} else {
+			// the font's own mapping wins, the code page 437 look-alike only stands in where it has none
+			glyph = font.glyphOf(c);
+			if (glyph < 0)
+				glyph = CP437_GLYPHS.get(c, -1);
+		}
+		if (glyph < 0 || glyph >= font.getGlyphCount())
+			glyph = unknownGlyph;
+
+		if (cursorX >= cells.getWidth()) {
+			cursorX = 0;
+			lineFeed();
+		}
+		if (cells.set(cursorX, cursorY, glyph, currentForeground(), currentBackground()) && dirty != null)
+			dirty.mark(cursorX, cursorY);
+		cursorX++;
+	}
+
+	private int currentForeground() {
+		if (inverse)
+			return background;
+		return bold && foregroundIndex >= 0 && foregroundIndex < 8 ? COLORS[foregroundIndex + 8] : foreground;
+	}
+
+	private int currentBackground() {
+		if (inverse)
+			return bold && foregroundIndex >= 0 && foregroundIndex < 8 ? COLORS[foregroundIndex + 8] : foreground;
+		return background;
+	}
+
+	private void lineFeed() {
+		int height = cells.getHeight();
+		if (cursorY + 1 < height) {
+			cursorY++;
+			return;
+		}
+
+		int width = cells.getWidth();
+		if (height > 1) {
+			cells.copy(0, 1, width, height - 1, 0, 0);
+			if (dirty != null)
+				dirty.mark(0, 0, width, height - 1);
+		}
+		clear(0, height - 1, width, 1);
+	}
+
+	/**
+	 * Clears a section with spaces in the current background.
+	 */
+	private void clear(int x, int y, int width, int height) {
+		int glyph = font.glyphOf(' ');
+		if (glyph < 0)
+			glyph = unknownGlyph;
+
+		for (int yo = y; yo < y + height; yo++) {
+			for (int xo = x; xo < x + width; xo++) {
+				if (cells.set(xo, yo, glyph, foreground, background) && dirty != null)
+					dirty.mark(xo, yo);
+			}
+		}
+	}
+}
@@ -0,0 +1,279 @@
+package asciiscreen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Shows the frames of a screen on a terminal as ANSI escape sequences, e.g. to run the same UI over SSH without libGDX.
+ * Glyphs are sent as the UTF-8 encoded characters they stand for, code page 437 by default,
+ * and colors as 24-bit truecolor or the nearest of the 256 xterm colors.
+ * <p>
+ * A delta only sends the dirty cells. The writer keeps track of where the terminal's cursor is and which colors are set,
+ * so it only moves the cursor to skip clean cells, picking the shortest way to do so, and only sets colors that differ.
+ * The terminal is assumed to start out with an unknown cursor position and colors, and to show nothing else in its window.
+ * Each frame is assembled in memory and then written in one go.
+ */
+public class AnsiWriter implements FrameSink {
+	/**
+	 * The character every code page 437 glyph stands for.
+	 */
+	public static final String CP437 =
+		" \u263a\u263b\u2665\u2666\u2663\u2660\u2022\u25d8\u25cb\u25d9\u2642\u2640\u266a\u266b\u263c" +
+		"\u25ba\u25c4\u2195\u203c\u00b6\u00a7\u25ac\u21a8\u2191\u2193\u2192\u2190\u221f\u2194\u25b2\u25bc" +
+		" !\"#$%&'()*+,-./" +
+		"0123456789:;<=>?" +
+		"@ABCDEFGHIJKLMNO" +
+		"PQRSTUVWXYZ[\\]^_" +
+		"`abcdefghijklmno" +
+		"pqrstuvwxyz{|}~\u2302" +
+		"\u00c7\u00fc\u00e9\u00e2\u00e4\u00e0\u00e5\u00e7\u00ea\u00eb\u00e8\u00ef\u00ee\u00ec\u00c4\u00c5" +
+		"\u00c9\u00e6\u00c6\u00f4\u00f6\u00f2\u00fb\u00f9\u00ff\u00d6\u00dc\u00a2\u00a3\u00a5\u20a7\u0192" +
+		"\u00e1\u00ed\u00f3\u00fa\u00f1\u00d1\u00aa\u00ba\u00bf\u2310\u00ac\u00bd\u00bc\u00a1\u00ab\u00bb" +
+		"\u2591\u2592\u2593\u2502\u2524\u2561\u2562\u2556\u2555\u2563\u2551\u2557\u255d\u255c\u255b\u2510" +
+		"\u2514\u2534\u252c\u251c\u2500\u253c\u255e\u255f\u255a\u2554\u2569\u2566\u2560\u2550\u256c\u2567" +
+		"\u2568\u2564\u2565\u2559\u2558\u2552\u2553\u256b\u256a\u2518\u250c\u2588\u2584\u258c\u2590\u2580" +
+		"\u03b1\u00df\u0393\u03c0\u03a3\u03c3\u00b5\u03c4\u03a6\u0398\u03a9\u03b4\u221e\u03c6\u03b5\u2229" +
+		"\u2261\u00b1\u2265\u2264\u2320\u2321\u00f7\u2248\u00b0\u2219\u00b7\u221a\u207f\u00b2\u25a0\u00a0";
+
+	// clean cells in the colors that are set already are written over rather than skipped if there are at most this many
+	private static final int MAX_REWRITE = 3;
+	// the most a single cell takes: moving the cursor, setting both colors and a character
+	private static final int MAX_CELL_BYTES = 64;
+	private static final byte ESC = 0x1b;
+
+	private final WritableByteChannel channel;
+	private final boolean trueColor;
+	private final CharSequence glyphChars;
+	private ByteBuffer buffer = ByteBuffer.allocate(8192);
+	// where the terminal's cursor is, -1 when that isn't known
+	private int cursorX = -1;
+	private int cursorY = -1;
+	// the colors set on the terminal as sent, see sgrColor
+	private boolean colorsKnown;
+	private int foreground;
+	private int background;
+
+	/**
+	 * Creates a writer for code page 437 glyphs.
+	 * @param channel   the channel to write to, it is not closed by the writer
+	 * @param trueColor whether to send 24-bit colors rather than the nearest of the 256 xterm colors
+	 */
+	public AnsiWriter(WritableByteChannel channel, boolean trueColor) {
+		this(channel, trueColor, CP437);
+	}
+
+	/**
+	 * Creates a writer.
+	 * @param channel    the channel to write to, it is not closed by the writer
+	 * @param trueColor  whether to send 24-bit colors rather than the nearest of the 256 xterm colors
+	 * @param glyphChars the character each glyph stands for, glyphs beyond it are sent as '?'
+	 */
+	public AnsiWriter(WritableByteChannel channel, boolean trueColor, CharSequence glyphChars) {
+		if (channel == null)
+			throw new NullPointerException("channel must not be null." );
+
+		if (glyphChars == null)
+			throw new NullPointerException("glyphChars must not be null." );
+
+		this.channel = channel;
+		this.trueColor = trueColor;
+		this.glyphChars = glyphChars;
+	}
+
+	/**
+	 * Forgets the terminal's cursor position and colors, e.g. after something else wrote to it.
+	 */
+	public void reset() {
+		cursorX = -1;
+		cursorY = -1;
+		colorsKnown = false;
+	}
+
+	/**
+	 * Sends every cell, the cursor position and colors are set from scratch.
+	 */
+	@Override
+	public void writeSnapshot(CellBuffer cells) throws IOException {
+		reset();
+		buffer.clear();
+		for (int y = 0; y < cells.getHeight(); y++) {
+			for (int x = 0; x < cells.getWidth(); x++)
+				putCell(cells, x, y);
+		}
+		flush();
+	}
+
+	/**
+	 * Sends the dirty cells, the dirty cells are left as they are.
+	 */
+	@Override
+	public void writeDelta(CellBuffer cells, DirtyCells dirty) throws IOException {
+		buffer.clear();
+		for (int y = dirty.nextDirtyRow(0); y >= 0; y = dirty.nextDirtyRow(y + 1)) {
+			for (int x = dirty.nextDirty(0, y); x >= 0; x = dirty.nextDirty(x + 1, y))
+				putCell(cells, x, y);
+		}
+		flush();
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	private void putCell(CellBuffer cells, int x, int y) {
+		if (buffer.remaining() < MAX_CELL_BYTES) {
+			ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+			buffer.flip();
+			grown.put(buffer);
+			buffer = grown;
+		}
+
+		moveTo(cells, x, y);
+		putColors(sgrColor(cells.getForeground(x, y)), sgrColor(cells.getBackground(x, y)));
+		putChar(cells.getGlyph(x, y));
+		cursorX = x + 1;
+		if (cursorX == cells.getWidth()) {
+			// terminals differ in where the cursor goes after the last column
+			cursorX = -1;
+			cursorY = -1;
+		}
+	}
+
+	/**
+	 * Moves the cursor the shortest way: over a few clean cells by writing them again, forward within the row,
+	 * to the start of the next row, or straight to the cell.
+	 */
+	private void moveTo(CellBuffer cells, int x, int y) {
+		if (cursorY == y && cursorX == x)
+			return;
+
+		if (cursorY == y && cursorX >= 0 && x > cursorX) {
+			if (x - cursorX <= MAX_REWRITE && isRewritable(cells, cursorX, x, y)) {
+				for (int i = cursorX; i < x; i++)
+					putChar(cells.getGlyph(i, y));
+			} else {
+				buffer.put(ESC).put((byte)'[');
+				if (x - cursorX > 1)
+					putNumber(x - cursorX);
+				buffer.put((byte)'C');
+			}
+		} else if (x == 0 && cursorY >= 0 && y == cursorY + 1) {
+			buffer.put((byte)'\r').put((byte)'\n');
+		} else {
+			buffer.put(ESC).put((byte)'[');
+			if (x != 0 || y != 0) {
+				putNumber(y + 1);
+				buffer.put((byte)';');
+				putNumber(x + 1);
+			}
+			buffer.put((byte)'H');
+		}
+		cursorX = x;
+		cursorY = y;
+	}
+
+	/**
+	 * Checks whether the cells can be written again without changing colors.
+	 */
+	private boolean isRewritable(CellBuffer cells, int fromX, int toX, int y) {
+		if (!colorsKnown)
+			return false;
+
+		for (int x = fromX; x < toX; x++) {
+			if (sgrColor(cells.getForeground(x, y)) != foreground || sgrColor(cells.getBackground(x, y)) != background)
+				return false;
+		}
+		return true;
+	}
+
+	private void putColors(int foreground, int background) {
+		boolean foregroundChanged = !colorsKnown || foreground != this.foreground;
+		boolean backgroundChanged = !colorsKnown || background != this.background;
+		if (!foregroundChanged && !backgroundChanged)
+			return;
+
+		buffer.put(ESC).put((byte)'[');
+		if (foregroundChanged)
+			putColor(38, foreground);
+		if (foregroundChanged && backgroundChanged)
+			buffer.put((byte)';');
+		if (backgroundChanged)
+			putColor(48, background);
+		buffer.put((byte)'m');
+
+		this.foreground = foreground;
+		this.background = background;
+		colorsKnown = true;
+	}
+
+	private void putColor(int parameter, int color) {
+		putNumber(parameter);
+		if (trueColor) {
+			buffer.put((byte)';').put((byte)'2').put((byte)';');
+			putNumber(color >>> 16);
+			buffer.put((byte)';');
+			putNumber(color >>> 8 & 0xff);
+			buffer.put((byte)';');
+			putNumber(color & 0xff);
+		} else {
+			buffer.put((byte)';').put((byte)'5').put((byte)';');
+			putNumber(color);
+		}
+	}
+
+	/**
+	 * Turns a packed color into what is sent for it: 0xRRGGBB for truecolor, or else the index of the nearest xterm color.
+	 */
+	private int sgrColor(int color) {
+		int r = color >>> 24;
+		int g = color >>> 16 & 0xff;
+		int b = color >>> 8 & 0xff;
+		if (trueColor)
+			return r << 16 | g << 8 | b;
+
+		// the 6x6x6 color cube from 16 on and the 24 grays from 232 on
+		int cr = cubeIndex(r);
+		int cg = cubeIndex(g);
+		int cb = cubeIndex(b);
+		int cubeDistance = square(r - cubeLevel(cr)) + square(g - cubeLevel(cg)) + square(b - cubeLevel(cb));
+		int gray = Math.min(Math.max(((r + g + b) / 3 - 3) / 10, 0), 23);
+		int grayLevel = 8 + gray * 10;
+		int grayDistance = square(r - grayLevel) + square(g - grayLevel) + square(b - grayLevel);
+		return grayDistance < cubeDistance ? 232 + gray : 16 + cr * 36 + cg * 6 + cb;
+	}
+
+	private static int cubeIndex(int channel) {
+		return channel < 48 ? 0 : channel < 115 ? 1 : (channel - 35) / 40;
+	}
+
+	private static int cubeLevel(int index) {
+		return index == 0 ? 0 : 55 + index * 40;
+	}
+
+	private static int square(int value) {
+		return value * value;
+	}
+
+	private void putNumber(int value) {
+		if (value >= 10)
+			putNumber(value / 10);
+		buffer.put((byte)('0' + value % 10));
+	}
+
+	private void putChar(int glyph) {
+		char c = glyph >= 0 && glyph < glyphChars.length() ? glyphChars.charAt(glyph) : '?';
+		if (c < 0x80) {
+			buffer.put((byte)c);
+		} else if (c < 0x800) {
+			buffer.put((byte)(0xc0 | c >>> 6));
+			buffer.put((byte)(0x80 | c & 0x3f));
+		} else {
+			buffer.put((byte)(0xe0 | c >>> 12));
+			buffer.put((byte)(0x80 | c >>> 6 & 0x3f));
+			buffer.put((byte)(0x80 | c & 0x3f));
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package asciiscreen;
+
+/**
+ * A {@link CellBuffer} backed by a single row-major int array.
+ * Each cell takes three consecutive ints: glyph, foreground, background.
+ */
+public class ArrayCellBuffer implements CellBuffer {
+	static final int STRIDE = 3;
+
+	private int width;
+	private int height;
+	private int[] data;
+
+	public ArrayCellBuffer(int width, int height) {
+		if (width < 1)
+			throw new IllegalArgumentException("width " + width + " must be greater than 0." );
+
+		if (height < 1)
+			throw new IllegalArgumentException("height " + height + " must be greater than 0." );
+
+		this.width = width;
+		this.height = height;
+		this.data = new int[width * height * STRIDE];
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int getGlyph(int x, int y) {
+		return data[(y * width + x) * STRIDE];
+	}
+
+	@Override
+	public int getForeground(int x, int y) {
+		return data[(y * width + x) * STRIDE + 1];
+	}
+
+	@Override
+	public int getBackground(int x, int y) {
+		return data[(y * width + x) * STRIDE + 2];
+	}
+
+	@Override
+	public boolean set(int x, int y, int glyph, int foreground, int background) {
+		int i = (y * width + x) * STRIDE;
+		if (data[i] == glyph && data[i + 1] == foreground && data[i + 2] == background)
+			return false;
+
+		data[i] = glyph;
+		data[i + 1] = foreground;
+		data[i + 2] = background;
+		return true;
+	}
+
+	@Override
+	public void fill(int x, int y, int width, int height, int glyph, int foreground, int background) {
+		for (int yo = y; yo < y + height; yo++) {
+			int i = (yo * this.width + x) * STRIDE;
+			int end = i + width * STRIDE;
+			for (; i < end; i += STRIDE) {
+				data[i] = glyph;
+				data[i + 1] = foreground;
+				data[i + 2] = background;
+			}
+		}
+	}
+
+	@Override
+	public void copy(int x, int y, int width, int height, int toX, int toY) {
+		// go against the direction of the move so overlapping rows aren't overwritten before they're read
+		boolean down = toY > y;
+		for (int i = 0; i < height; i++) {
+			int row = down ? height - 1 - i : i;
+			System.arraycopy(data, ((y + row) * this.width + x) * STRIDE, data, ((toY + row) * this.width + toX) * STRIDE, width * STRIDE);
+		}
+	}
+
+	@Override
+	public void resize(int width, int height) {
+		if (width < 1)
+			throw new IllegalArgumentException("width " + width + " must be greater than 0." );
+
+		if (height < 1)
+			throw new IllegalArgumentException("height " + height + " must be greater than 0." );
+
+		int[] target = data;
+		if (width * height * STRIDE > data.length)
+			target = new int[Math.max(width * height, data.length / STRIDE * 3 / 2) * STRIDE];
+
+		int rows = Math.min(height, this.height);
+		int length = Math.min(width, this.width) * STRIDE;
+		// wider rows move toward the end of the array, so they go from the bottom up within the same array
+		if (target == data && width > this.width) {
+			for (int y = rows - 1; y >= 0; y--)
+				System.arraycopy(data, y * this.width * STRIDE, target, y * width * STRIDE, length);
+		} else if (target != data || width < this.width) {
+			for (int y = 0; y < rows; y++)
+				System.arraycopy(data, y * this.width * STRIDE, target, y * width * STRIDE, length);
+		}
+		data = target;
+		this.width = width;
+		this.height = height;
+	}
+
+	@Override
+	public CellBuffer create(int width, int height) {
+		return new ArrayCellBuffer(width, height);
+	}
+}
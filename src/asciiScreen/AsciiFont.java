@@ -0,0 +1,210 @@
+package asciiscreen;
+
+import com.badlogic.gdx.utils.IntIntMap;
+
+/**
+ * Describes a font or tileset: the image holding the glyphs, the size of a glyph,
+ * how the glyphs are laid out in the image, and which character is drawn with which glyph.
+ * <p>
+ * Glyphs are numbered row by row from the upper left corner of the grid.
+ * Out of the box every character below 256 is drawn with the glyph of the same number, the way code page 437
+ * fonts are laid out. Other characters, e.g. box drawing or CJK ones, can be mapped to any glyph with {@link #map(int, int)}.
+ * Characters below 256 are looked up in an array and others in a primitive hash map, both without boxing.
+ * <p>
+ * Fonts are immutable, mapping a character makes a new font, so fonts can be shared freely, e.g. {@link #CP437}.
+ */
+public class AsciiFont {
+	// replace the string with the file's actually path (relative to working directory, which in default is "assets/").
+	/**
+	 * The 9x16 code page 437 font AsciiScreen uses by default.
+	 */
+	public static final AsciiFont CP437 = new AsciiFont("texture/cp437.png", 9, 16, 32, 256, 7, 7);
+
+	private static final int DENSE_RANGE = 256;
+
+	private final String path;
+	private final int charWidth;
+	private final int charHeight;
+	private final int columns;
+	private final int glyphCount;
+	private final int offsetX;
+	private final int offsetY;
+	private final int[] denseGlyphs;
+	private final IntIntMap sparseGlyphs;
+	private final char[] glyphChars;
+
+	/**
+	 * @param path       the internal path of the image
+	 * @param charWidth  the width of a glyph in pixels
+	 * @param charHeight the height of a glyph in pixels
+	 * @param columns    the number of glyphs in a row of the image
+	 * @param glyphCount the number of glyphs in the image
+	 * @param offsetX    the distance in pixels from the left of the image to the first glyph
+	 * @param offsetY    the distance in pixels from the top of the image to the first glyph
+	 */
+	public AsciiFont(String path, int charWidth, int charHeight, int columns, int glyphCount, int offsetX, int offsetY) {
+		if (path == null)
+			throw new NullPointerException("path must not be null." );
+
+		if (charWidth < 1)
+			throw new IllegalArgumentException("charWidth " + charWidth + " must be greater than 0." );
+
+		if (charHeight < 1)
+			throw new IllegalArgumentException("charHeight " + charHeight + " must be greater than 0." );
+
+		if (columns < 1)
+			throw new IllegalArgumentException("columns " + columns + " must be greater than 0." );
+
+		if (glyphCount < 1 || glyphCount > 65536)
+			throw new IllegalArgumentException("glyphCount " + glyphCount + " must be within range [1,65536]." );
+
+		if (offsetX < 0 || offsetY < 0)
+			throw new IllegalArgumentException("offset " + offsetX + "," + offsetY + " must not be negative." );
+
+		this.path = path;
+		this.charWidth = charWidth;
+		this.charHeight = charHeight;
+		this.columns = columns;
+		this.glyphCount = glyphCount;
+		this.offsetX = offsetX;
+		this.offsetY = offsetY;
+
+		denseGlyphs = new int[DENSE_RANGE];
+		sparseGlyphs = new IntIntMap();
+		glyphChars = new char[glyphCount];
+		for (int i = 0; i < DENSE_RANGE; i++) {
+			denseGlyphs[i] = i < glyphCount ? i : -1;
+			if (i < glyphCount)
+				glyphChars[i] = (char)i;
+		}
+	}
+
+	/**
+	 * Copies a font to map characters in.
+	 */
+	private AsciiFont(AsciiFont font) {
+		path = font.path;
+		charWidth = font.charWidth;
+		charHeight = font.charHeight;
+		columns = font.columns;
+		glyphCount = font.glyphCount;
+		offsetX = font.offsetX;
+		offsetY = font.offsetY;
+		denseGlyphs = font.denseGlyphs.clone();
+		sparseGlyphs = new IntIntMap(font.sparseGlyphs);
+		glyphChars = font.glyphChars.clone();
+	}
+
+	/**
+	 * Makes a font that draws a character with the specified glyph, this font stays as it is.
+	 * The first character mapped to a glyph is the one {@link #charOf(int)} reports for it, as long as it still maps to it.
+	 * @param codePoint the character
+	 * @param glyph     the glyph's number, or -1 to leave the character without a glyph
+	 * @return the new font, for convenient chaining of method calls
+	 */
+	public AsciiFont map(int codePoint, int glyph) {
+		if (codePoint < 0)
+			throw new IllegalArgumentException("codePoint " + codePoint + " must not be negative." );
+
+		if (glyph < -1 || glyph >= glyphCount)
+			throw new IllegalArgumentException("glyph " + glyph + " must be within range [-1," + glyphCount + ")." );
+
+		AsciiFont font = new AsciiFont(this);
+		int previous = glyphOf(codePoint);
+		if (codePoint < DENSE_RANGE)
+			font.denseGlyphs[codePoint] = glyph;
+		else if (glyph < 0)
+			font.sparseGlyphs.remove(codePoint, -1);
+		else
+			font.sparseGlyphs.put(codePoint, glyph);
+
+		// the character that stood for the glyph it had may not map to it anymore
+		if (previous >= 0 && previous != glyph && font.glyphChars[previous] == codePoint)
+			font.glyphChars[previous] = font.findChar(previous);
+		if (glyph >= 0 && font.glyphOf(font.glyphChars[glyph]) != glyph && codePoint <= Character.MAX_VALUE)
+			font.glyphChars[glyph] = (char)codePoint;
+		return font;
+	}
+
+	/**
+	 * Finds a character that maps to a glyph, preferring the glyph's own code point.
+	 * @return the character, or the glyph's own code point if there is none
+	 */
+	private char findChar(int glyph) {
+		if (glyph < DENSE_RANGE && denseGlyphs[glyph] == glyph)
+			return (char)glyph;
+
+		for (int i = 0; i < DENSE_RANGE; i++) {
+			if (denseGlyphs[i] == glyph)
+				return (char)i;
+		}
+		for (IntIntMap.Entry entry : sparseGlyphs) {
+			if (entry.value == glyph && entry.key <= Character.MAX_VALUE)
+				return (char)entry.key;
+		}
+		return (char)glyph;
+	}
+
+	/**
+	 * Gets the glyph a character is drawn with.
+	 * @param codePoint the character
+	 * @return the glyph's number or -1 if the font has no glyph for it
+	 */
+	public int glyphOf(int codePoint) {
+		if (codePoint >= 0 && codePoint < DENSE_RANGE)
+			return denseGlyphs[codePoint];
+		return sparseGlyphs.get(codePoint, -1);
+	}
+
+	/**
+	 * Gets the character that stands for a glyph, e.g. when reading cells back.
+	 * If no character maps to the glyph, this is the glyph's own code point, which {@link #glyphOf(int)} doesn't map back.
+	 * @param glyph the glyph's number
+	 * @return
+	 */
+	public char charOf(int glyph) {
+		return glyphChars[glyph];
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public int getCharWidth() {
+		return charWidth;
+	}
+
+	public int getCharHeight() {
+		return charHeight;
+	}
+
+	/**
+	 * Gets the number of glyphs in a row of the image.
+	 * @return
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getGlyphCount() {
+		return glyphCount;
+	}
+
+	/**
+	 * Gets the distance in pixels from the left of the image to the glyph.
+	 * @param glyph the glyph's number
+	 * @return
+	 */
+	public int getGlyphX(int glyph) {
+		return offsetX + (glyph % columns) * charWidth;
+	}
+
+	/**
+	 * Gets the distance in pixels from the top of the image to the glyph.
+	 * @param glyph the glyph's number
+	 * @return
+	 */
+	public int getGlyphY(int glyph) {
+		return offsetY + (glyph / columns) * charHeight;
+	}
+}
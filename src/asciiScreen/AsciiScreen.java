@@ -5,8 +5,24 @@ import com.badlogic.gdx.ScreenAdapter;
 import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.graphics.g2d.*;
 import com.badlogic.gdx.graphics.glutils.FloatFrameBuffer;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.Timer;
 import com.badlogic.gdx.utils.viewport.*;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 // import java.awt.Color;
 // import java.awt.Dimension;
 // import java.awt.Graphics;
@@ -24,6 +40,24 @@ import java.nio.ByteBuffer;
  */
 public class AsciiScreen extends ScreenAdapter {
 	private static final long serialVersionUID = 1;
+	// withEachTileParallel doesn't hand fewer cells than this to another thread
+	private static final int MIN_BAND_CELLS = 4096;
+	// the number of frames the stats history keeps, about two seconds at 60 frames per second
+	private static final int STATS_FRAMES = 128;
+	// the number of text layouts writeText keeps
+	private static final int TEXT_LAYOUTS = 256;
+	// renders that present a change when rendering on demand, one for each buffer of a double buffered window
+	private static final int PRESENTS = 2;
+
+	/**
+	 * The glyph of a cell in a layer above the base layer that lets the layers below show through.
+	 */
+	public static final int TRANSPARENT = -1;
+
+	/**
+	 * The character that writes a {@link #TRANSPARENT} cell to a layer above the base layer.
+	 */
+	public static final char TRANSPARENT_CHARACTER = '\uffff';
 
     /**
      * The color black (pure black).
@@ -110,31 +144,95 @@ public class AsciiScreen extends ScreenAdapter {
     // private Graphics offscreenGraphics;
     private int widthInCharacters;
     private int heightInCharacters;
-    private int charWidth = 9;
-    private int charHeight = 16;
+    private int charWidth;
+    private int charHeight;
     private Color defaultBackgroundColor;
     private Color defaultForegroundColor;
     private int cursorX;
     private int cursorY;
     // private BufferedImage glyphSprite; // replaced by Texture
     // private BufferedImage[] glyphs; // replaced by TextureRegion
-    private char[][] chars;
-    private Color[][] backgroundColors;
-    private Color[][] foregroundColors;
-    private char[][] oldChars;
-    private Color[][] oldBackgroundColors;
-    private Color[][] oldForegroundColors;
+    // private char[][] chars; // replaced by CellBuffer
+    // private Color[][] backgroundColors;
+    // private Color[][] foregroundColors;
+    // what write and friends work on, the current layer
+    private CellBuffer cells;
+    private DirtyCells dirtyCells;
+    // the layers from the bottom up, each with the cells that changed since they were last composed
+    private CellBuffer[] layers;
+    private DirtyCells[] layerDirtyCells;
+    private int layer;
+    // what the layers compose to, the same as the base layer until a second one is added
+    private CellBuffer backCells;
+    private DirtyCells backDirtyCells;
+    // what paint draws from, the same as backCells unless double buffered
+    private CellBuffer frontCells;
+    // cells that changed since they were last drawn into the frame buffer
+    private DirtyCells frontDirtyCells;
+    // hands the cells changed by publish over to paint, guarded by publishedDirtyCells
+    private CellBuffer publishedCells;
+    private DirtyCells publishedDirtyCells;
+    private final AtomicBoolean published = new AtomicBoolean();
 
 	/* Ported fields */
 	private Viewport viewport;
 	private Camera camera;
-	private Texture glyphSprite;
+	private AsciiFont font;
+	private GlyphAtlas atlas;
 	private TextureRegion[] glyphs;
 	private SpriteBatch batch;
+	// paints the screen instead of the GL objects, which are null then
+	private final SoftwareRasterizer rasterizer;
 	// for rendering background
 	private Texture backgroundTexture;
-	private FloatFrameBuffer frameBuffer;
+	private FrameBuffer frameBuffer;
+	private boolean floatFrameBuffer;
 	private TextureRegion frameRegion;
+	// the size in cells the frame buffer has room for, it only grows
+	private int frameCapacityWidth;
+	private int frameCapacityHeight;
+	// maps the pixels of the screen to the frame buffer, whose upper left corner holds the screen
+	private final Matrix4 frameProjection = new Matrix4();
+	// cell moves still to be done in the frame buffer, six ints each: x, y, width, height, toX, toY
+	private final IntArray pendingMoves = new IntArray();
+	// holds the pixels of a move in transit, a frame buffer can't be drawn into itself
+	private FrameBuffer moveBuffer;
+	private final TextureRegion moveRegion = new TextureRegion();
+	// what showMap copied in last
+	private VirtualMap shownMap;
+	private int shownLeft;
+	private int shownTop;
+	private int shownX;
+	private int shownY;
+	private int shownWidth;
+	private int shownHeight;
+	private int[] shownVersions;
+	private CellRenderer renderer;
+	// gets every painted frame, starting with a snapshot
+	private FrameSink recorder;
+	private boolean recordSnapshot;
+	private final TextLayout textLayout = new TextLayout(TEXT_LAYOUTS);
+	private final AnimationQueue animations = new AnimationQueue();
+	// the seconds the animations have been updated for
+	private double animationTime;
+	// requests the render that runs the next due animation when rendering on demand, made on first use
+	private Timer.Task animationWakeUp;
+	// the stats of the frame being rendered, null unless enabled
+	private FrameStats stats;
+	// read by other threads through getStatsHistory
+	private volatile FrameStatsHistory statsHistory;
+	private FrameStats.Listener statsListener;
+	// calls to the write methods while stats were on, and as of the last frame with stats,
+	// counted on the writing thread and read on the render thread when double buffered
+	private final AtomicInteger writeCalls = new AtomicInteger();
+	private int statsWriteCalls;
+	// whether render skips frames where nothing changed
+	private boolean renderOnDemand;
+	// whether anything changed since the last render, and how many more renders have to present the last change,
+	// set on the writing thread and cleared on the render thread when double buffered
+	private final AtomicBoolean invalidated = new AtomicBoolean();
+	private int pendingPresents;
+
 	/**
 	* Class constructor.
 	* Default size is 80x24.
@@ -149,137 +247,1016 @@ public class AsciiScreen extends ScreenAdapter {
 	* @param height
 	*/
 	public AsciiScreen(int width, int height) {
+		this(new ArrayCellBuffer(width, height));
+	}
+
+	/**
+	* Class constructor specifying the cell storage, e.g. a {@link DirectCellBuffer} to keep the cells off-heap.
+	* The size in characters is taken from the buffer.
+	* @param cells
+	*/
+	public AsciiScreen(CellBuffer cells) {
+		this(cells, AsciiFont.CP437);
+	}
+
+	/**
+	* Class constructor specifying the cell storage and the font.
+	* The size in characters is taken from the buffer, the size of a character from the font.
+	* @param cells
+	* @param font
+	*/
+	public AsciiScreen(CellBuffer cells, AsciiFont font) {
+		this(cells, font, null);
+	}
+
+	/**
+	* Class constructor for a screen without a GL context, e.g. on a server or in tests,
+	* that paints into a software rasterizer instead of a frame buffer.
+	* Nothing of libGDX is used that needs a GL context or a backend: {@link #render(float)} only paints
+	* and the pixels are read from the rasterizer. The size in characters is taken from the buffer, the font from the rasterizer.
+	* @param cells
+	* @param rasterizer the rasterizer to paint into, the same size as the buffer
+	*/
+	public AsciiScreen(CellBuffer cells, SoftwareRasterizer rasterizer) {
+		this(cells, fontOf(rasterizer), rasterizer);
+	}
+
+	private AsciiScreen(CellBuffer cells, AsciiFont font, SoftwareRasterizer rasterizer) {
 		super();
 
-		if (width < 1){
-			throw new IllegalArgumentException("width " + width + " must be greater than 0." );
-		}
+		if (cells == null)
+			throw new NullPointerException("cells must not be null." );
 
-		if (height < 1){
-			throw new IllegalArgumentException("height " + height + " must be greater than 0." );
-		}
+		if (font == null)
+			throw new NullPointerException("font must not be null." );
 
-		widthInCharacters = width;
-		heightInCharacters = height;
+		if (rasterizer != null && (rasterizer.getWidthInCharacters() != cells.getWidth() || rasterizer.getHeightInCharacters() != cells.getHeight()))
+			throw new IllegalArgumentException("rasterizer " + rasterizer.getWidthInCharacters() + "x" + rasterizer.getHeightInCharacters() + " must be " + cells.getWidth() + "x" + cells.getHeight() + "." );
+
+		if (rasterizer == null)
+			checkTextureSize(cells.getWidth(), cells.getHeight(), font.getCharWidth(), font.getCharHeight());
+
+		this.cells = cells;
+		this.font = font;
+		this.rasterizer = rasterizer;
+		charWidth = font.getCharWidth();
+		charHeight = font.getCharHeight();
+		widthInCharacters = cells.getWidth();
+		heightInCharacters = cells.getHeight();
+		frameCapacityWidth = widthInCharacters;
+		frameCapacityHeight = heightInCharacters;
 
 		this.camera = new OrthographicCamera();
 		this.viewport = new FitViewport(widthInCharacters * charWidth, heightInCharacters * charHeight, this.camera);
-		this.batch = new SpriteBatch();
-
-		Pixmap whitebackground = new Pixmap(charWidth, charHeight, Pixmap.Format.RGBA8888);
-		whitebackground.setColor(white);
-		whitebackground.fill();
-		this.backgroundTexture = new Texture(whitebackground);
-		whitebackground.dispose();
 
 		defaultBackgroundColor = black;
 		defaultForegroundColor = white;
 
-		chars = new char[widthInCharacters][heightInCharacters];
-		backgroundColors = new Color[widthInCharacters][heightInCharacters];
-		foregroundColors = new Color[widthInCharacters][heightInCharacters];
-
-		oldChars = new char[widthInCharacters][heightInCharacters];
-		oldBackgroundColors = new Color[widthInCharacters][heightInCharacters];
-		oldForegroundColors = new Color[widthInCharacters][heightInCharacters];
+		dirtyCells = new DirtyCells(widthInCharacters, heightInCharacters);
+		layers = new CellBuffer[] { cells };
+		layerDirtyCells = new DirtyCells[] { dirtyCells };
+		backCells = cells;
+		backDirtyCells = dirtyCells;
+		frontCells = cells;
+		frontDirtyCells = dirtyCells;
+
+		if (rasterizer == null) {
+			this.batch = new SpriteBatch();
+
+			Pixmap whitebackground = new Pixmap(charWidth, charHeight, Pixmap.Format.RGBA8888);
+			whitebackground.setColor(white);
+			whitebackground.fill();
+			this.backgroundTexture = new Texture(whitebackground);
+			whitebackground.dispose();
+
+			atlas = GlyphAtlas.obtain(font);
+			glyphs = atlas.getGlyphs();
+			renderer = new SpriteBatchCellRenderer(batch, backgroundTexture, glyphs, atlas.getBlankGlyphs(), charWidth, charHeight);
+		}
 
-		glyphs = new TextureRegion[256];
+		AsciiScreen.this.clear();
+		dirtyCells.markAll();
+	}
 
-		loadGlyphs();
+	private static AsciiFont fontOf(SoftwareRasterizer rasterizer) {
+		if (rasterizer == null)
+			throw new NullPointerException("rasterizer must not be null." );
 
-		AsciiScreen.this.clear();
+		return rasterizer.getFont();
 	}
 
 	public void resize(int width, int height) {
-		this.viewport.update(width, height, true);
+		// a headless screen has no window to fit
+		if (!isHeadless())
+			this.viewport.update(width, height, true);
+		invalidate();
 	}
 
     @Override
     public void render(float delta) {
-		Gdx.gl.glClearColor(0.0f, 0.0f, 0.0f, 0.0f);
-		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+		if (animations.size() > 0 && !isDoubleBuffered()) {
+			updateAnimations(delta);
+			// the renders in between would find nothing due
+			if (renderOnDemand)
+				scheduleAnimationWakeUp();
+		}
+		// cleared first, so a change made while this frame renders invalidates the next one
+		boolean wasInvalidated = invalidated.getAndSet(false);
+		if (wasInvalidated || published.get() || (frameBuffer == null && !isHeadless()) || pendingMoves.size > 0 || !frontDirtyCells.isEmpty())
+			pendingPresents = PRESENTS;
+		if (renderOnDemand) {
+			if (pendingPresents == 0)
+				return;
+
+			// the window's other buffer needs the change as well
+			if (--pendingPresents > 0)
+				Gdx.graphics.requestRendering();
+		}
+		if (!isHeadless()) {
+			Gdx.gl.glClearColor(0.0f, 0.0f, 0.0f, 0.0f);
+			Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+		}
+		FrameStats stats = this.stats;
+		long start = stats != null ? System.nanoTime() : 0;
         paint(delta);
-		batch.setColor(white);
-		batch.begin();
-		batch.draw(frameRegion, 0, 0);
-		batch.end();
+		long painted = stats != null ? System.nanoTime() : 0;
+		// a headless screen has no window to show the frame in, its pixels stay in the rasterizer
+		if (!isHeadless()) {
+			batch.setColor(white);
+			batch.setProjectionMatrix(camera.combined);
+			batch.begin();
+			batch.draw(frameRegion, 0, 0);
+			batch.end();
+			if (stats != null) {
+				stats.quads++;
+				stats.drawCalls += batch.renderCalls;
+			}
+		}
+		if (stats != null) {
+			stats.paintNanos = painted - start;
+			stats.blitNanos = System.nanoTime() - painted;
+			int writeCalls = this.writeCalls.get();
+			stats.writeCalls = writeCalls - statsWriteCalls;
+			statsWriteCalls = writeCalls;
+			statsHistory.record(stats);
+			if (statsListener != null)
+				statsListener.frameRendered(stats);
+			stats.reset();
+		}
     }
 
 	public void paint(float delta){
+		if (!isHeadless())
+			prepareFrameBuffer();
+		if (!isDoubleBuffered())
+			compose();
+		if (published.getAndSet(false)) {
+			synchronized (publishedDirtyCells) {
+				publishedDirtyCells.copyDirty(publishedCells, frontCells, frontDirtyCells);
+			}
+		}
+		if (pendingMoves.size > 0)
+			paintMoves();
+		if (recorder != null)
+			record();
+		if (frontDirtyCells.isEmpty())
+			return;
+
+		if (stats != null)
+			stats.dirtyCells += frontDirtyCells.count();
+		if (isHeadless()) {
+			// the rasterizer draws every dirty cell, without quads or draw calls
+			if (stats != null)
+				stats.drawnCells += frontDirtyCells.count();
+			rasterizer.paint(frontCells, frontDirtyCells);
+			return;
+		}
+		frameBuffer.begin();
+		renderer.paint(frontCells, frontDirtyCells, frameProjection);
+		frameBuffer.end();
+		if (stats != null) {
+			stats.drawnCells += renderer.getDrawnCells();
+			stats.quads += renderer.getQuads();
+			stats.drawCalls += renderer.getDrawCalls();
+		}
+	}
+
+	/**
+	 * Creates the frame buffer the cells are drawn into if there is none, and the region of it the screen takes up.
+	 */
+	private void prepareFrameBuffer() {
 		if(frameBuffer == null){
-			frameBuffer = new FloatFrameBuffer(charWidth * widthInCharacters, charHeight * heightInCharacters, false);
+			if(floatFrameBuffer){
+				frameBuffer = new FloatFrameBuffer(charWidth * frameCapacityWidth, charHeight * frameCapacityHeight, false);
+			}else{
+				frameBuffer = new FrameBuffer(Pixmap.Format.RGBA8888, charWidth * frameCapacityWidth, charHeight * frameCapacityHeight, false);
+			}
 			frameBuffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+			frontDirtyCells.markAll();
+			pendingMoves.clear();
+			if (stats != null)
+				stats.frameBufferCreated = true;
 		}
 		if(frameRegion == null){
-			frameRegion = new TextureRegion(frameBuffer.getColorBufferTexture());
+			// rows are drawn from the top of the frame buffer down, so they keep their pixels when the grid gets taller or shorter
+			int height = charHeight * heightInCharacters;
+			frameRegion = new TextureRegion(frameBuffer.getColorBufferTexture(), 0, frameBuffer.getHeight() - height, charWidth * widthInCharacters, height);
 			frameRegion.flip(false, true);
+			frameProjection.setToOrtho2D(0, height - frameBuffer.getHeight(), frameBuffer.getWidth(), frameBuffer.getHeight());
 		}
-		frameBuffer.begin();
-		batch.setProjectionMatrix(camera.combined);
-		batch.begin();
-		for (int x = 0; x < widthInCharacters; x++) {
-			for (int y = 0; y < heightInCharacters; y++) {
-				if (oldBackgroundColors[x][y] == backgroundColors[x][y]
-				&& oldForegroundColors[x][y] == foregroundColors[x][y]
-				&& oldChars[x][y] == chars[x][y]){
-					continue;
+	}
+
+	/**
+	 * Starts or stops keeping stats of every rendered frame: how long paint and the final blit took,
+	 * how many cells changed and were drawn, the quads and draw calls and the write calls since the last frame.
+	 * Frames painted outside {@link #render(float)} count toward the next rendered frame.
+	 * While stats are off they cost next to nothing.
+	 * @param statsEnabled
+	 */
+	public void setStatsEnabled(boolean statsEnabled) {
+		if (statsEnabled == (stats != null))
+			return;
+
+		if (statsEnabled) {
+			stats = new FrameStats();
+			statsHistory = new FrameStatsHistory(STATS_FRAMES);
+			statsWriteCalls = writeCalls.get();
+		} else {
+			stats = null;
+			statsHistory = null;
+		}
+	}
+
+	public boolean isStatsEnabled() {
+		return stats != null;
+	}
+
+	/**
+	 * Gets the stats of the most recent frames, these may be read from any thread.
+	 * Enabling stats again starts a new history.
+	 * @return the history or null if stats are off
+	 */
+	public FrameStatsHistory getStatsHistory() {
+		return statsHistory;
+	}
+
+	/**
+	 * Sets who to tell about the stats of every frame while stats are on.
+	 * @param statsListener the listener, or null for none
+	 */
+	public void setStatsListener(FrameStats.Listener statsListener) {
+		this.statsListener = statsListener;
+	}
+
+	public FrameStats.Listener getStatsListener() {
+		return statsListener;
+	}
+
+	/**
+	 * Changes the size of the screen in characters, e.g. to give a larger window more columns and rows.
+	 * The cells within both the old and the new size keep their content in every layer,
+	 * the cells that weren't there before are blank, or {@link #TRANSPARENT} on layers above the base layer.
+	 * The cell storage and the frame buffer grow geometrically and are reused while they have room,
+	 * so resizing step by step while a window is dragged rarely allocates, and only the newly exposed cells are drawn.
+	 * Call this on the render thread while nothing writes, and not while recording,
+	 * since a recording keeps the size it started with.
+	 * In pixels the grid can't be larger than the GL's maximum texture size, which the frame buffer is limited to.
+	 * @param width  the new width in characters
+	 * @param height the new height in characters
+	 */
+	public void resizeGrid(int width, int height) {
+		if (width < 1)
+			throw new IllegalArgumentException("width " + width + " must be greater than 0." );
+
+		if (height < 1)
+			throw new IllegalArgumentException("height " + height + " must be greater than 0." );
+
+		if (recorder != null)
+			throw new IllegalStateException("the grid can't be resized while recording." );
+
+		if (!isHeadless())
+			checkTextureSize(width, height, charWidth, charHeight);
+
+		if (width == widthInCharacters && height == heightInCharacters)
+			return;
+
+		// moves still to be done in the frame buffer may not fit anymore, their cells are drawn instead
+		for (int i = 0; i < pendingMoves.size; i += 6)
+			frontDirtyCells.mark(pendingMoves.get(i + 4), pendingMoves.get(i + 5), pendingMoves.get(i + 2), pendingMoves.get(i + 3));
+		pendingMoves.clear();
+
+		// the buffers are shared in various ways depending on layers and double buffering
+		Set<Object> resized = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		for (int i = 0; i < layers.length; i++)
+			resizeCells(layers[i], layerDirtyCells[i], i > 0, width, height, resized);
+		resizeCells(backCells, backDirtyCells, false, width, height, resized);
+		resizeCells(frontCells, frontDirtyCells, false, width, height, resized);
+		if (publishedCells != null) {
+			synchronized (publishedDirtyCells) {
+				resizeCells(publishedCells, publishedDirtyCells, false, width, height, resized);
+			}
+		}
+		widthInCharacters = width;
+		heightInCharacters = height;
+		cursorX = Math.min(cursorX, width - 1);
+		cursorY = Math.min(cursorY, height - 1);
+		// showMap copies everything again next time
+		shownMap = null;
+
+		if (isHeadless()) {
+			// the rasterizer starts out with a blank image
+			rasterizer.resize(width, height);
+			frontDirtyCells.markAll();
+		} else if (width > frameCapacityWidth || height > frameCapacityHeight) {
+			int limit = getMaxTextureSize();
+			if (width > frameCapacityWidth)
+				frameCapacityWidth = Math.max(width, Math.min(frameCapacityWidth * 3 / 2, limit / charWidth));
+			if (height > frameCapacityHeight)
+				frameCapacityHeight = Math.max(height, Math.min(frameCapacityHeight * 3 / 2, limit / charHeight));
+			if (frameBuffer != null) {
+				frameBuffer.dispose();
+				frameBuffer = null;
+			}
+			if (moveBuffer != null) {
+				moveBuffer.dispose();
+				moveBuffer = null;
+			}
+		}
+		frameRegion = null;
+
+		viewport.setWorldSize(width * charWidth, height * charHeight);
+		if (viewport.getScreenWidth() > 0 && viewport.getScreenHeight() > 0)
+			viewport.update(viewport.getScreenWidth(), viewport.getScreenHeight(), true);
+		invalidate();
+	}
+
+	/**
+	 * Resizes cells and their dirty state, unless they were resized already, and fills and marks the newly exposed cells.
+	 */
+	private void resizeCells(CellBuffer cells, DirtyCells dirty, boolean transparent, int width, int height, Set<Object> resized) {
+		int oldWidth = widthInCharacters;
+		int oldHeight = heightInCharacters;
+		if (resized.add(cells)) {
+			int glyph = transparent ? TRANSPARENT : glyphOf(' ');
+			int foreground = transparent ? 0 : Color.rgba8888(defaultForegroundColor);
+			int background = transparent ? 0 : Color.rgba8888(defaultBackgroundColor);
+			cells.resize(width, height);
+			if (width > oldWidth)
+				cells.fill(oldWidth, 0, width - oldWidth, Math.min(height, oldHeight), glyph, foreground, background);
+			if (height > oldHeight)
+				cells.fill(0, oldHeight, width, height - oldHeight, glyph, foreground, background);
+		}
+		if (resized.add(dirty)) {
+			dirty.resize(width, height);
+			if (width > oldWidth)
+				dirty.mark(oldWidth, 0, width - oldWidth, Math.min(height, oldHeight));
+			if (height > oldHeight)
+				dirty.mark(0, oldHeight, width, height - oldHeight);
+		}
+	}
+
+	/**
+	 * Checks that a grid of the size fits into a frame buffer, whose texture can't be larger than the GL allows.
+	 */
+	private static void checkTextureSize(int width, int height, int charWidth, int charHeight) {
+		int limit = getMaxTextureSize();
+		// a GL that doesn't tell, e.g. a mock, has no limit
+		if (limit <= 0)
+			return;
+
+		if ((long)width * charWidth > limit)
+			throw new IllegalArgumentException("width " + width + " times the character width " + charWidth + " must be at most the maximum texture size " + limit + "." );
+
+		if ((long)height * charHeight > limit)
+			throw new IllegalArgumentException("height " + height + " times the character height " + charHeight + " must be at most the maximum texture size " + limit + "." );
+	}
+
+	private static int getMaxTextureSize() {
+		IntBuffer size = BufferUtils.newIntBuffer(16);
+		Gdx.gl.glGetIntegerv(GL20.GL_MAX_TEXTURE_SIZE, size);
+		return size.get(0);
+	}
+
+	/**
+	 * Starts animating a section of cells on the current layer, see {@link CellAnimation}.
+	 * Animations run from {@link #render(float)}, when double buffered they are run by {@link #updateAnimations(float)} instead.
+	 * When rendering on demand, a render is requested for when the next animation is due, and none in between.
+	 * @param animation the animation, its section must lie on the screen
+	 * @return the animation
+	 */
+	public CellAnimation addAnimation(CellAnimation animation) {
+		if (animation == null)
+			throw new NullPointerException("animation must not be null." );
+
+		checkSection(animation.getX(), animation.getY(), animation.getWidth(), animation.getHeight());
+
+		animations.add(animation, animationTime, layer);
+		invalidate();
+		return animation;
+	}
+
+	/**
+	 * Stops an animation, its cells stay as they are.
+	 * @param animation
+	 * @return false if the animation wasn't running
+	 */
+	public boolean removeAnimation(CellAnimation animation) {
+		return animations.remove(animation);
+	}
+
+	/**
+	 * Stops every animation, their cells stay as they are.
+	 */
+	public void clearAnimations() {
+		animations.clear();
+	}
+
+	/**
+	 * Gets the number of running animations.
+	 * @return
+	 */
+	public int getAnimationCount() {
+		return animations.size();
+	}
+
+	/**
+	 * Advances the animations by the specified time and runs the ones that are due.
+	 * This is done by {@link #render(float)} unless double buffered, then call it from the thread that writes, before {@link #publish()}.
+	 * @param delta the seconds since the last update
+	 */
+	public void updateAnimations(float delta) {
+		animationTime += delta;
+		if (animations.update(animationTime, layers, layerDirtyCells) > 0)
+			invalidate();
+	}
+
+	/**
+	 * Requests a render for when the next animation is due, or cancels the request once none are left.
+	 */
+	private void scheduleAnimationWakeUp() {
+		if (animationWakeUp == null) {
+			animationWakeUp = new Timer.Task() {
+				@Override
+				public void run() {
+					Gdx.graphics.requestRendering();
 				}
-				Color bg = backgroundColors[x][y];
-				Color fg = foregroundColors[x][y];
+			};
+		}
+		animationWakeUp.cancel();
+		if (animations.size() == 0)
+			return;
+
+		float delay = (float)(animations.getNextTime() - animationTime);
+		if (delay > 0)
+			Timer.schedule(animationWakeUp, delay);
+		else
+			Gdx.graphics.requestRendering();
+	}
+
+	/**
+	 * Sets whether the screen is only rendered when something changed, e.g. for turn based games that mostly wait for input.
+	 * This turns off continuous rendering in libGDX, every write, resize or publish then requests a render of its own.
+	 * Calls to {@link #render(float)} that find nothing changed since the change was presented return right away,
+	 * without clearing, painting or drawing the frame buffer, and leave the window's buffers as they are.
+	 * Skipped renders aren't recorded and don't count as frames for the stats.
+	 * Turning it off turns continuous rendering back on.
+	 * @param renderOnDemand
+	 */
+	public void setRenderOnDemand(boolean renderOnDemand) {
+		if (isHeadless())
+			throw new IllegalStateException("a headless screen has no render loop to pause." );
+
+		this.renderOnDemand = renderOnDemand;
+		Gdx.graphics.setContinuousRendering(!renderOnDemand);
+		if (!renderOnDemand && animationWakeUp != null)
+			animationWakeUp.cancel();
+		invalidate();
+	}
+
+	public boolean isRenderOnDemand() {
+		return renderOnDemand;
+	}
+
+	/**
+	 * Notes a call to one of the write methods that got past checking its arguments, which may have changed cells.
+	 * The call is only counted while stats are on, otherwise this is a volatile read or two.
+	 */
+	private void changed() {
+		// only one thread writes at a time, so an ordered store is enough to make the count visible
+		if (statsHistory != null)
+			writeCalls.lazySet(writeCalls.get() + 1);
+		invalidate();
+	}
+
+	/**
+	 * Notes that the next render has to present a change, requesting it when rendering on demand.
+	 */
+	private void invalidate() {
+		if (invalidated.get() || !invalidated.compareAndSet(false, true))
+			return;
+
+		if (renderOnDemand)
+			Gdx.graphics.requestRendering();
+	}
+
+	/**
+	 * Sets where to send the frames the screen paints, from the next paint on, e.g. a {@link FrameWriter} to record them.
+	 * The first frame is a snapshot of all cells, every later paint writes a delta of the cells it draws, even if there are none.
+	 * The recorder is written to on the render thread, an {@link IOException} is rethrown as a {@link GdxRuntimeException}.
+	 * @param recorder the sink to send the frames to, or null to stop recording
+	 */
+	public void setRecorder(FrameSink recorder) {
+		this.recorder = recorder;
+		recordSnapshot = true;
+	}
+
+	public FrameSink getRecorder() {
+		return recorder;
+	}
+
+	private void record() {
+		try {
+			if (recordSnapshot)
+				recorder.writeSnapshot(frontCells);
+			else
+				recorder.writeDelta(frontCells, frontDirtyCells);
+		} catch (IOException e) {
+			throw new GdxRuntimeException("Couldn't record frame.", e);
+		}
+		recordSnapshot = false;
+	}
+
+	/**
+	 * Reads the next recorded frame into the current layer, e.g. once per render to replay a recording at its pace.
+	 * @param reader the recording, made from a screen of the same size
+	 * @return false if the recording has ended
+	 * @throws IOException if the recording can't be read
+	 */
+	public boolean replay(FrameReader reader) throws IOException {
+		boolean read = reader.readFrame(cells, dirtyCells, font.getGlyphCount(), layer > 0);
+		if (read)
+			changed();
+		return read;
+	}
 
-				batch.setColor(bg);
-				batch.draw(backgroundTexture, x * charWidth, (heightInCharacters - y - 1) * charHeight, charWidth, charHeight);
-				batch.setColor(fg);
-				batch.draw(glyphs[chars[x][y]], x * charWidth, (heightInCharacters - y - 1) * charHeight, charWidth, charHeight);
+	/**
+	 * Moves sections of the frame buffer's pixels the way {@link #moveCells} moved their cells, so they needn't be drawn again.
+	 * Every move goes through a second frame buffer, since a frame buffer can't be read while drawing into it.
+	 */
+	private void paintMoves() {
+		if (moveBuffer == null) {
+			if (floatFrameBuffer)
+				moveBuffer = new FloatFrameBuffer(frameBuffer.getWidth(), frameBuffer.getHeight(), false);
+			else
+				moveBuffer = new FrameBuffer(Pixmap.Format.RGBA8888, frameBuffer.getWidth(), frameBuffer.getHeight(), false);
+		}
 
-				oldBackgroundColors[x][y] = backgroundColors[x][y];
-				oldForegroundColors[x][y] = foregroundColors[x][y];
-				oldChars[x][y] = chars[x][y];
+		// the screen's pixels start this far up the frame buffer's texture
+		int offsetY = frameBuffer.getHeight() - heightInCharacters * charHeight;
+		batch.setProjectionMatrix(frameProjection);
+		batch.setColor(Color.WHITE);
+		batch.disableBlending();
+		for (int i = 0; i < pendingMoves.size; i += 6) {
+			int width = pendingMoves.get(i + 2) * charWidth;
+			int height = pendingMoves.get(i + 3) * charHeight;
+			int x = pendingMoves.get(i) * charWidth;
+			int y = (heightInCharacters - pendingMoves.get(i + 1)) * charHeight - height;
+			int toX = pendingMoves.get(i + 4) * charWidth;
+			int toY = (heightInCharacters - pendingMoves.get(i + 5)) * charHeight - height;
+
+			// frame buffer textures are upside down, flipping the region draws them upright
+			moveBuffer.begin();
+			batch.begin();
+			moveRegion.setRegion(frameBuffer.getColorBufferTexture());
+			moveRegion.setRegion(x, y + offsetY, width, height);
+			moveRegion.flip(false, true);
+			batch.draw(moveRegion, x, y, width, height);
+			batch.end();
+			moveBuffer.end();
+
+			frameBuffer.begin();
+			batch.begin();
+			moveRegion.setRegion(moveBuffer.getColorBufferTexture());
+			moveRegion.setRegion(x, y + offsetY, width, height);
+			moveRegion.flip(false, true);
+			batch.draw(moveRegion, toX, toY, width, height);
+			batch.end();
+			frameBuffer.end();
+			if (stats != null) {
+				stats.quads += 2;
+				stats.drawCalls += 2;
 			}
 		}
-		batch.end();
-		frameBuffer.end();
+		batch.enableBlending();
+		pendingMoves.clear();
 	}
 
-    private void loadGlyphs() {
-		// replace the string with the file's actually path (relative to working directory, which in default is "assets/").
-		Pixmap pixmap = new Pixmap(Gdx.files.internal("texture/cp437.png"));
-		Pixmap pixmapDst = new Pixmap(pixmap.getWidth(), pixmap.getHeight(), Pixmap.Format.RGBA8888);
-		// transfer the image into white-alpha
-		ByteBuffer buffer = pixmap.getPixels();
-		ByteBuffer bufferDst = pixmapDst.getPixels();
-		buffer.rewind();
-		bufferDst.rewind();
-		System.out.println(buffer.limit());
-		System.out.println(bufferDst.limit());
-		while(buffer.hasRemaining()){
-			byte a = buffer.get();
-			byte r = 0;
-			byte g = 0;
-			byte b = 0;
-			if(a != 0){
-				r = (byte)127;
-				g = (byte)127;
-				b = (byte)127;
-			} //@TODO
-			bufferDst.put(r);
-			bufferDst.put(g);
-			bufferDst.put(b);
-			bufferDst.put(a);
-		}
-		buffer.rewind();
-		bufferDst.rewind();
-
-        glyphSprite = new Texture(pixmapDst);
-		glyphSprite.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
-
-        for (int i = 0; i < 256; i++) {
-            int startX = (i % 32) * charWidth + 7; // 8 is the padding, same below.
-            int startY = (i / 32) * charHeight + 7;
-
-            glyphs[i] = new TextureRegion(glyphSprite, startX, startY, charWidth, charHeight);
-        }
-		pixmap.dispose();
+	/**
+	 * Moves a section of cells that lies on the screen, together with their dirty state.
+	 * When possible the pixels already drawn are moved along in the frame buffer on the next paint
+	 * instead of drawing the cells again.
+	 */
+	private void moveCells(int x, int y, int width, int height, int toX, int toY) {
+		cells.copy(x, y, width, height, toX, toY);
+		// the front buffer, the shader renderer or the other layers don't go along with the moves
+		if (isDoubleBuffered() || isMeshRendering() || frameBuffer == null || isLayered() || recorder != null) {
+			dirtyCells.mark(toX, toY, width, height);
+		} else {
+			dirtyCells.copy(x, y, width, height, toX, toY);
+			pendingMoves.add(x, y, width, height);
+			pendingMoves.add(toX, toY);
+		}
+	}
+
+	/**
+	 * Shows a section of a map on the whole screen.
+	 * @param map  the map to show
+	 * @param left the distance from the left of the map to the first column shown
+	 * @param top  the distance from the top of the map to the first row shown
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiScreen showMap(VirtualMap map, int left, int top) {
+		return showMap(map, left, top, 0, 0, widthInCharacters, heightInCharacters);
+	}
+
+	/**
+	 * Shows a section of a map in a section of the screen, e.g. once per frame with the camera's position.
+	 * Only what is new since the last call gets copied: when the map is scrolled by a few cells,
+	 * the cells already on screen are moved along and only the uncovered rows and columns are copied in,
+	 * and chunks of the map that changed in the meantime are copied again. Parts of the section beyond the map's edges are empty.
+	 * @param map    the map to show
+	 * @param left   the distance from the left of the map to the first column shown, may lie outside of the map
+	 * @param top    the distance from the top of the map to the first row shown, may lie outside of the map
+	 * @param x      the distance from the left of the screen to show the map at
+	 * @param y      the distance from the top of the screen to show the map at
+	 * @param width  the width of the section to show
+	 * @param height the height of the section to show
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiScreen showMap(VirtualMap map, int left, int top, int x, int y, int width, int height) {
+		if (map == null)
+			throw new NullPointerException("map must not be null." );
+
+		checkSection(x, y, width, height);
+		changed();
+
+		int dx = left - shownLeft;
+		int dy = top - shownTop;
+		boolean copied = false;
+		if (map != shownMap || x != shownX || y != shownY || width != shownWidth || height != shownHeight
+			|| Math.abs(dx) >= width || Math.abs(dy) >= height) {
+			if (map != shownMap) {
+				shownVersions = new int[map.getChunksX() * map.getChunksY()];
+			}
+			copyMap(map, left, top, x, y, width, height);
+			copied = true;
+		} else if (dx != 0 || dy != 0) {
+			// the map moved by -dx, -dy on screen
+			moveCells(x + Math.max(dx, 0), y + Math.max(dy, 0), width - Math.abs(dx), height - Math.abs(dy), x + Math.max(-dx, 0), y + Math.max(-dy, 0));
+			if (dx > 0)
+				copyMap(map, left + width - dx, top, x + width - dx, y, dx, height);
+			else if (dx < 0)
+				copyMap(map, left, top, x, y, -dx, height);
+			if (dy > 0)
+				copyMap(map, left, top + height - dy, x, y + height - dy, width, dy);
+			else if (dy < 0)
+				copyMap(map, left, top, x, y, width, -dy);
+		}
+
+		// copy the chunks that changed since they were last copied
+		int firstChunkX = Math.max(left, 0) >> VirtualMap.CHUNK_SHIFT;
+		int firstChunkY = Math.max(top, 0) >> VirtualMap.CHUNK_SHIFT;
+		int lastChunkX = Math.min(left + width, map.getWidth()) - 1 >> VirtualMap.CHUNK_SHIFT;
+		int lastChunkY = Math.min(top + height, map.getHeight()) - 1 >> VirtualMap.CHUNK_SHIFT;
+		for (int chunkY = firstChunkY; chunkY <= lastChunkY; chunkY++) {
+			for (int chunkX = firstChunkX; chunkX <= lastChunkX; chunkX++) {
+				int version = map.getVersion(chunkX, chunkY);
+				int index = chunkY * map.getChunksX() + chunkX;
+				if (shownVersions[index] == version)
+					continue;
+
+				shownVersions[index] = version;
+				if (copied)
+					continue;
+
+				int startX = Math.max(chunkX << VirtualMap.CHUNK_SHIFT, left);
+				int startY = Math.max(chunkY << VirtualMap.CHUNK_SHIFT, top);
+				int endX = Math.min((chunkX + 1) << VirtualMap.CHUNK_SHIFT, left + width);
+				int endY = Math.min((chunkY + 1) << VirtualMap.CHUNK_SHIFT, top + height);
+				copyMap(map, startX, startY, x + startX - left, y + startY - top, endX - startX, endY - startY);
+			}
+		}
+
+		shownMap = map;
+		shownLeft = left;
+		shownTop = top;
+		shownX = x;
+		shownY = y;
+		shownWidth = width;
+		shownHeight = height;
+		return this;
+	}
+
+	/**
+	 * Copies a section of a map to a section of the screen that is known to lie on it.
+	 */
+	private void copyMap(VirtualMap map, int left, int top, int x, int y, int width, int height) {
+		for (int yo = 0; yo < height; yo++) {
+			for (int xo = 0; xo < width; xo++) {
+				int glyph = map.getGlyph(left + xo, top + yo);
+				checkGlyph(glyph);
+
+				if (cells.set(x + xo, y + yo, glyph, map.getForeground(left + xo, top + yo), map.getBackground(left + xo, top + yo)))
+					dirtyCells.mark(x + xo, y + yo);
+			}
+		}
+	}
+
+	/**
+	 * Sets whether writing and rendering work on separate buffers, so game logic can write from another thread.
+	 * When double buffered, all the write, clear and withEachTile methods go to a back buffer that is only
+	 * shown once {@link #publish()} is called, and {@link #render(float)} only ever reads the front buffer.
+	 * Writing stays confined to one thread at a time, and this must not be called while a write is under way.
+	 * @param doubleBuffered
+	 */
+	public void setDoubleBuffered(boolean doubleBuffered) {
+		if (doubleBuffered == isDoubleBuffered())
+			return;
+
+		if (doubleBuffered) {
+			frontCells = backCells.create(widthInCharacters, heightInCharacters);
+			frontDirtyCells = backDirtyCells;
+			setBackDirtyCells(new DirtyCells(widthInCharacters, heightInCharacters));
+			publishedCells = backCells.create(widthInCharacters, heightInCharacters);
+			publishedDirtyCells = new DirtyCells(widthInCharacters, heightInCharacters);
+			// both copies start out the same as the back buffer
+			DirtyCells all = new DirtyCells(widthInCharacters, heightInCharacters);
+			all.markAll();
+			all.copyDirty(backCells, publishedCells, new DirtyCells(widthInCharacters, heightInCharacters));
+			all.markAll();
+			all.copyDirty(backCells, frontCells, frontDirtyCells);
+		} else {
+			// the back buffer is the newest state, it simply becomes the only one
+			frontCells = backCells;
+			frontDirtyCells.markAll();
+			setBackDirtyCells(frontDirtyCells);
+			publishedCells = null;
+			publishedDirtyCells = null;
+			published.set(false);
+		}
+		invalidate();
+	}
+
+	/**
+	 * Gets whether writing and rendering work on separate buffers.
+	 * @return
+	 */
+	public boolean isDoubleBuffered() {
+		return frontCells != backCells;
+	}
+
+	/**
+	 * Replaces the back buffer's dirty cells, which are the base layer's as long as there is only one layer.
+	 */
+	private void setBackDirtyCells(DirtyCells dirty) {
+		backDirtyCells = dirty;
+		if (!isLayered()) {
+			layerDirtyCells[0] = dirty;
+			dirtyCells = dirty;
+		}
+	}
+
+	/**
+	 * Makes everything written to the back buffer so far visible to the next {@link #render(float)}.
+	 * Only the cells that changed since the last publish are handed over.
+	 * Call this from the thread that writes, e.g. at the end of a simulation tick. Does nothing unless double buffered.
+	 */
+	public void publish() {
+		if (!isDoubleBuffered())
+			return;
+
+		compose();
+		synchronized (publishedDirtyCells) {
+			backDirtyCells.copyDirty(backCells, publishedCells, publishedDirtyCells);
+		}
+		published.set(true);
+		// publish runs on the writing thread, libGDX takes render requests from any thread
+		if (renderOnDemand)
+			Gdx.graphics.requestRendering();
+	}
+
+	/**
+	 * Adds a layer of cells on top of the others, e.g. for entities, effects or the UI over a map.
+	 * A new layer starts out {@link #TRANSPARENT}. Cells where every layer is transparent show a space on the default background.
+	 * Within a cell, the topmost layer that isn't transparent decides the glyph and the foreground color,
+	 * and a background with zero alpha lets the background of the layers below show through.
+	 * Layers are composed incrementally: only the cells that changed in some layer are composed again on the next paint or publish.
+	 * @return the new layer's number, the base layer is 0
+	 */
+	public int addLayer() {
+		if (!isLayered()) {
+			// the base layer gets cells of its own, the back buffer keeps what the layers compose to
+			CellBuffer base = backCells.create(widthInCharacters, heightInCharacters);
+			DirtyCells all = new DirtyCells(widthInCharacters, heightInCharacters);
+			all.markAll();
+			all.copyDirty(backCells, base, new DirtyCells(widthInCharacters, heightInCharacters));
+			layers[0] = base;
+			layerDirtyCells[0] = new DirtyCells(widthInCharacters, heightInCharacters);
+		}
+
+		CellBuffer added = backCells.create(widthInCharacters, heightInCharacters);
+		added.fill(0, 0, widthInCharacters, heightInCharacters, TRANSPARENT, 0, 0);
+		layers = Arrays.copyOf(layers, layers.length + 1);
+		layerDirtyCells = Arrays.copyOf(layerDirtyCells, layerDirtyCells.length + 1);
+		layers[layers.length - 1] = added;
+		layerDirtyCells[layers.length - 1] = new DirtyCells(widthInCharacters, heightInCharacters);
+		setLayer(layer);
+		return layers.length - 1;
+	}
+
+	/**
+	 * Sets the layer that all the write, clear, scroll and withEachTile methods work on.
+	 * @param layer the layer's number, the base layer is 0
+	 */
+	public void setLayer(int layer) {
+		if (layer < 0 || layer >= layers.length)
+			throw new IllegalArgumentException("layer " + layer + " must be within range [0," + layers.length + ")." );
+
+		this.layer = layer;
+		cells = layers[layer];
+		dirtyCells = layerDirtyCells[layer];
+	}
+
+	/**
+	 * Gets the layer that all the write, clear, scroll and withEachTile methods work on.
+	 * @return
+	 */
+	public int getLayer() {
+		return layer;
+	}
+
+	/**
+	 * Gets the number of layers, including the base layer.
+	 * @return
+	 */
+	public int getLayerCount() {
+		return layers.length;
+	}
+
+	private boolean isLayered() {
+		return layers.length > 1;
+	}
+
+	/**
+	 * Composes the cells that changed in any layer into the back buffer.
+	 * Only the layers at those cells are read, down to the first one that covers the cell completely.
+	 */
+	private void compose() {
+		if (!isLayered())
+			return;
+
+		int blank = font.glyphOf(' ');
+		int defaultForeground = Color.rgba8888(defaultForegroundColor);
+		int defaultBackground = Color.rgba8888(defaultBackgroundColor);
+		for (int i = 0; i < layers.length; i++) {
+			DirtyCells dirty = layerDirtyCells[i];
+			for (int y = dirty.nextDirtyRow(0); y >= 0; y = dirty.nextDirtyRow(y + 1)) {
+				for (int x = dirty.nextDirty(0, y); x >= 0; x = dirty.nextDirty(x + 1, y)) {
+					int glyph = TRANSPARENT;
+					int foreground = 0;
+					int background = defaultBackground;
+					for (int l = layers.length - 1; l >= 0; l--) {
+						CellBuffer plane = layers[l];
+						if (plane.getGlyph(x, y) == TRANSPARENT)
+							continue;
+
+						if (glyph == TRANSPARENT) {
+							glyph = plane.getGlyph(x, y);
+							foreground = plane.getForeground(x, y);
+						}
+						if ((plane.getBackground(x, y) & 0xff) != 0) {
+							background = plane.getBackground(x, y);
+							break;
+						}
+					}
+					if (glyph == TRANSPARENT) {
+						glyph = blank;
+						foreground = defaultForeground;
+					}
+					if (backCells.set(x, y, glyph, foreground, background))
+						backDirtyCells.mark(x, y);
+				}
+				dirty.clearRow(y);
+			}
+		}
+	}
+
+	/**
+	 * Sets whether the composed screen is kept in a 32-bit float per channel frame buffer
+	 * instead of the default RGBA8888 one, which takes a quarter of the memory and fill bandwidth.
+	 * The float buffer only makes a difference for colors finer than 8 bits per channel.
+	 * Changing this recreates the frame buffer on the next paint.
+	 * @param floatFrameBuffer
+	 */
+	public void setFloatFrameBuffer(boolean floatFrameBuffer) {
+		if (floatFrameBuffer == this.floatFrameBuffer)
+			return;
+
+		this.floatFrameBuffer = floatFrameBuffer;
+		if (isMeshRendering())
+			((MeshCellRenderer)renderer).setFloatFrameBuffer(floatFrameBuffer);
+		if (frameBuffer != null) {
+			frameBuffer.dispose();
+			frameBuffer = null;
+			frameRegion = null;
+		}
+		if (moveBuffer != null) {
+			moveBuffer.dispose();
+			moveBuffer = null;
+		}
+		invalidate();
+	}
+
+	/**
+	 * Gets whether the composed screen is kept in a float frame buffer.
+	 * @return
+	 */
+	public boolean isFloatFrameBuffer() {
+		return floatFrameBuffer;
+	}
+
+	/**
+	 * Sets whether the screen is drawn by a shader in a single pass instead of sprites for the changed cells.
+	 * The shader redraws the whole screen whenever anything changed but costs next to no CPU time,
+	 * which pays off on large screens that change a lot.
+	 * @param meshRendering
+	 */
+	public void setMeshRendering(boolean meshRendering) {
+		if (meshRendering == isMeshRendering())
+			return;
+
+		if (isHeadless())
+			throw new IllegalStateException("a headless screen has no shader to render with." );
+
+		renderer.dispose();
+		if (meshRendering) {
+			MeshCellRenderer meshRenderer = new MeshCellRenderer(glyphs, white, charWidth, charHeight);
+			meshRenderer.setFloatFrameBuffer(floatFrameBuffer);
+			renderer = meshRenderer;
+		} else
+			renderer = new SpriteBatchCellRenderer(batch, backgroundTexture, glyphs, atlas.getBlankGlyphs(), charWidth, charHeight);
+		frontDirtyCells.markAll();
+		invalidate();
+	}
+
+	/**
+	 * Gets whether the screen is drawn by a shader in a single pass.
+	 * @return
+	 */
+	public boolean isMeshRendering() {
+		return renderer instanceof MeshCellRenderer;
+	}
+
+	/**
+	 * Gets whether the screen paints into a software rasterizer instead of a GL context.
+	 * @return
+	 */
+	public boolean isHeadless() {
+		return rasterizer != null;
+	}
+
+	/**
+	 * Gets the rasterizer a headless screen paints into, e.g. to write the painted frame as a png.
+	 * @return the rasterizer or null unless headless
+	 */
+	public SoftwareRasterizer getRasterizer() {
+		return rasterizer;
+	}
+
+	@Override
+	public void dispose() {
+		if (isHeadless())
+			return;
+
+		if (animationWakeUp != null)
+			animationWakeUp.cancel();
+
+		renderer.dispose();
+		batch.dispose();
+		backgroundTexture.dispose();
+		atlas.release();
+		if (frameBuffer != null)
+			frameBuffer.dispose();
+		if (moveBuffer != null)
+			moveBuffer.dispose();
+	}
+
+    /**
+     * Gets the font the screen is drawn with.
+     * @return
+     */
+    public AsciiFont getFont() {
+        return font;
     }
 
     /**
@@ -368,6 +1345,14 @@ public class AsciiScreen extends ScreenAdapter {
         setCursorY(y);
     }
 
+    /**
+     * Puts the cursor back where it was before an {@link AsciiView} wrote, which may be right of the last column.
+     */
+    void restoreCursor(int x, int y) {
+        cursorX = x;
+        cursorY = y;
+    }
+
     /**
      * Gets the default background color that is used when writing new text.
      * @return
@@ -423,8 +1408,7 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen clear(char character) {
-        if (character < 0 || character >= glyphs.length)
-            throw new IllegalArgumentException("character " + character + " must be within range [0," + glyphs.length + "]." );
+        glyphOf(character);
 
         return clear(character, 0, 0, widthInCharacters, heightInCharacters, defaultForegroundColor, defaultBackgroundColor);
     }
@@ -437,8 +1421,7 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen clear(char character, Color foreground, Color background) {
-        if (character < 0 || character >= glyphs.length)
-            throw new IllegalArgumentException("character " + character + " must be within range [0," + glyphs.length + "]." );
+        glyphOf(character);
 
         return clear(character, 0, 0, widthInCharacters, heightInCharacters, foreground, background);
     }
@@ -453,8 +1436,7 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen clear(char character, int x, int y, int width, int height) {
-        if (character < 0 || character >= glyphs.length)
-            throw new IllegalArgumentException("character " + character + " must be within range [0," + glyphs.length + "]." );
+        glyphOf(character);
 
         if (x < 0 || x >= widthInCharacters)
             throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")." );
@@ -490,8 +1472,28 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen clear(char character, int x, int y, int width, int height, Color foreground, Color background) {
-        if (character < 0 || character >= glyphs.length)
-            throw new IllegalArgumentException("character " + character + " must be within range [0," + glyphs.length + "]." );
+        if (foreground == null)
+            foreground = defaultForegroundColor;
+
+        if (background == null)
+            background = defaultBackgroundColor;
+
+        return clear(character, x, y, width, height, Color.rgba8888(foreground), Color.rgba8888(background));
+    }
+
+    /**
+     * Clear the section of the screen with the specified character and packed foreground and background colors.
+     * @param character  the character to write
+     * @param x          the distance from the left to begin writing from
+     * @param y          the distance from the top to begin writing from
+     * @param width      the height of the section to clear
+     * @param height     the width of the section to clear
+     * @param foreground the foreground color as RGBA8888, see {@link ColorPalette}
+     * @param background the background color as RGBA8888, see {@link ColorPalette}
+     * @return this for convenient chaining of method calls
+     */
+    public AsciiScreen clear(char character, int x, int y, int width, int height, int foreground, int background) {
+        int glyph = glyphOf(character);
 
         if (x < 0 || x >= widthInCharacters)
             throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")" );
@@ -511,11 +1513,15 @@ public class AsciiScreen extends ScreenAdapter {
         if (y + height > heightInCharacters)
             throw new IllegalArgumentException("y + height " + (y + height) + " must be less than " + (heightInCharacters + 1) + "." );
 
-        for (int xo = x; xo < x + width; xo++) {
-            for (int yo = y; yo < y + height; yo++) {
-                write(character, xo, yo, foreground, background);
+        changed();
+        for (int yo = y; yo < y + height; yo++) {
+            for (int xo = x; xo < x + width; xo++) {
+                if (cells.set(xo, yo, glyph, foreground, background))
+                    dirtyCells.mark(xo, yo);
             }
         }
+        cursorX = x + width;
+        cursorY = y + height - 1;
         return this;
     }
 
@@ -526,9 +1532,6 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen write(char character) {
-        if (character < 0 || character >= glyphs.length)
-            throw new IllegalArgumentException("character " + character + " must be within range [0," + glyphs.length + "]." );
-
         return write(character, cursorX, cursorY, defaultForegroundColor, defaultBackgroundColor);
     }
 
@@ -540,9 +1543,6 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen write(char character, Color foreground) {
-        if (character < 0 || character >= glyphs.length)
-            throw new IllegalArgumentException("character " + character + " must be within range [0," + glyphs.length + "]." );
-
         return write(character, cursorX, cursorY, foreground, defaultBackgroundColor);
     }
 
@@ -555,9 +1555,6 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen write(char character, Color foreground, Color background) {
-        if (character < 0 || character >= glyphs.length)
-            throw new IllegalArgumentException("character " + character + " must be within range [0," + glyphs.length + "]." );
-
         return write(character, cursorX, cursorY, foreground, background);
     }
 
@@ -570,15 +1567,6 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen write(char character, int x, int y) {
-        if (character < 0 || character >= glyphs.length)
-            throw new IllegalArgumentException("character " + character + " must be within range [0," + glyphs.length + "]." );
-
-        if (x < 0 || x >= widthInCharacters)
-            throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")" );
-
-        if (y < 0 || y >= heightInCharacters)
-            throw new IllegalArgumentException("y " + y + " must be within range [0," + heightInCharacters + ")" );
-
         return write(character, x, y, defaultForegroundColor, defaultBackgroundColor);
     }
 
@@ -592,8 +1580,21 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen write(char character, int x, int y, Color foreground) {
-        if (character < 0 || character >= glyphs.length)
-            throw new IllegalArgumentException("character " + character + " must be within range [0," + glyphs.length + "]." );
+        return write(character, x, y, foreground, defaultBackgroundColor);
+    }
+
+    /**
+     * Write a character to the specified position with the specified foreground and background colors.
+     * This updates the cursor's position but not the default foreground or background colors.
+     * @param character  the character to write
+     * @param x          the distance from the left to begin writing from
+     * @param y          the distance from the top to begin writing from
+     * @param foreground the foreground color or null to use the default
+     * @param background the background color or null to use the default
+     * @return this for convenient chaining of method calls
+     */
+    public AsciiScreen write(char character, int x, int y, Color foreground, Color background) {
+        int glyph = glyphOf(character);
 
         if (x < 0 || x >= widthInCharacters)
             throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")" );
@@ -601,22 +1602,29 @@ public class AsciiScreen extends ScreenAdapter {
         if (y < 0 || y >= heightInCharacters)
             throw new IllegalArgumentException("y " + y + " must be within range [0," + heightInCharacters + ")" );
 
-        return write(character, x, y, foreground, defaultBackgroundColor);
+        changed();
+        if (foreground == null) foreground = defaultForegroundColor;
+        if (background == null) background = defaultBackgroundColor;
+
+        if (cells.set(x, y, glyph, Color.rgba8888(foreground), Color.rgba8888(background)))
+            dirtyCells.mark(x, y);
+        cursorX = x + 1;
+        cursorY = y;
+        return this;
     }
 
     /**
-     * Write a character to the specified position with the specified foreground and background colors.
+     * Write a character to the specified position with the specified packed foreground and background colors.
      * This updates the cursor's position but not the default foreground or background colors.
      * @param character  the character to write
      * @param x          the distance from the left to begin writing from
      * @param y          the distance from the top to begin writing from
-     * @param foreground the foreground color or null to use the default
-     * @param background the background color or null to use the default
+     * @param foreground the foreground color as RGBA8888, see {@link ColorPalette}
+     * @param background the background color as RGBA8888, see {@link ColorPalette}
      * @return this for convenient chaining of method calls
      */
-    public AsciiScreen write(char character, int x, int y, Color foreground, Color background) {
-        if (character < 0 || character >= glyphs.length)
-            throw new IllegalArgumentException("character " + character + " must be within range [0," + glyphs.length + "]." );
+    public AsciiScreen write(char character, int x, int y, int foreground, int background) {
+        int glyph = glyphOf(character);
 
         if (x < 0 || x >= widthInCharacters)
             throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")" );
@@ -624,12 +1632,9 @@ public class AsciiScreen extends ScreenAdapter {
         if (y < 0 || y >= heightInCharacters)
             throw new IllegalArgumentException("y " + y + " must be within range [0," + heightInCharacters + ")" );
 
-        if (foreground == null) foreground = defaultForegroundColor;
-        if (background == null) background = defaultBackgroundColor;
-
-        chars[x][y] = character;
-        foregroundColors[x][y] = foreground;
-        backgroundColors[x][y] = background;
+        changed();
+        if (cells.set(x, y, glyph, foreground, background))
+            dirtyCells.mark(x, y);
         cursorX = x + 1;
         cursorY = y;
         return this;
@@ -642,12 +1647,6 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen write(String string) {
-        if (string == null)
-            throw new NullPointerException("string must not be null" );
-
-        if (cursorX + string.length() >= widthInCharacters)
-            throw new IllegalArgumentException("cursorX + string.length() " + (cursorX + string.length()) + " must be less than " + widthInCharacters + "." );
-
         return write(string, cursorX, cursorY, defaultForegroundColor, defaultBackgroundColor);
     }
 
@@ -659,12 +1658,6 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen write(String string, Color foreground) {
-        if (string == null)
-            throw new NullPointerException("string must not be null" );
-
-        if (cursorX + string.length() >= widthInCharacters)
-            throw new IllegalArgumentException("cursorX + string.length() " + (cursorX + string.length()) + " must be less than " + widthInCharacters + "." );
-
         return write(string, cursorX, cursorY, foreground, defaultBackgroundColor);
     }
 
@@ -677,12 +1670,6 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen write(String string, Color foreground, Color background) {
-        if (string == null)
-            throw new NullPointerException("string must not be null" );
-
-        if (cursorX + string.length() >= widthInCharacters)
-            throw new IllegalArgumentException("cursorX + string.length() " + (cursorX + string.length()) + " must be less than " + widthInCharacters + "." );
-
         return write(string, cursorX, cursorY, foreground, background);
     }
 
@@ -695,18 +1682,6 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen write(String string, int x, int y) {
-        if (string == null)
-            throw new NullPointerException("string must not be null" );
-
-        if (x + string.length() >= widthInCharacters)
-            throw new IllegalArgumentException("x + string.length() " + (x + string.length()) + " must be less than " + widthInCharacters + "." );
-
-        if (x < 0 || x >= widthInCharacters)
-            throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")" );
-
-        if (y < 0 || y >= heightInCharacters)
-            throw new IllegalArgumentException("y " + y + " must be within range [0," + heightInCharacters + ")" );
-
         return write(string, x, y, defaultForegroundColor, defaultBackgroundColor);
     }
 
@@ -720,18 +1695,6 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen write(String string, int x, int y, Color foreground) {
-        if (string == null)
-            throw new NullPointerException("string must not be null" );
-
-        if (x + string.length() >= widthInCharacters)
-            throw new IllegalArgumentException("x + string.length() " + (x + string.length()) + " must be less than " + widthInCharacters + "." );
-
-        if (x < 0 || x >= widthInCharacters)
-            throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")" );
-
-        if (y < 0 || y >= heightInCharacters)
-            throw new IllegalArgumentException("y " + y + " must be within range [0," + heightInCharacters + ")" );
-
         return write(string, x, y, foreground, defaultBackgroundColor);
     }
 
@@ -758,15 +1721,14 @@ public class AsciiScreen extends ScreenAdapter {
         if (y < 0 || y >= heightInCharacters)
             throw new IllegalArgumentException("y " + y + " must be within range [0," + heightInCharacters + ")." );
 
+        changed();
         if (foreground == null)
             foreground = defaultForegroundColor;
 
         if (background == null)
             background = defaultBackgroundColor;
 
-        for (int i = 0; i < string.length(); i++) {
-            write(string.charAt(i), x + i, y, foreground, background);
-        }
+        storeSpan(string, 0, string.length(), x, y, Color.rgba8888(foreground), Color.rgba8888(background));
         return this;
     }
 
@@ -778,18 +1740,7 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen writeCenter(String string, int y) {
-        if (string == null)
-            throw new NullPointerException("string must not be null" );
-
-        if (string.length() >= widthInCharacters)
-            throw new IllegalArgumentException("string.length() " + string.length() + " must be less than " + widthInCharacters + "." );
-
-        int x = (widthInCharacters - string.length()) / 2;
-
-        if (y < 0 || y >= heightInCharacters)
-            throw new IllegalArgumentException("y " + y + " must be within range [0," + heightInCharacters + ")" );
-
-        return write(string, x, y, defaultForegroundColor, defaultBackgroundColor);
+        return writeCenter(string, y, defaultForegroundColor, defaultBackgroundColor);
     }
 
     /**
@@ -801,18 +1752,7 @@ public class AsciiScreen extends ScreenAdapter {
      * @return this for convenient chaining of method calls
      */
     public AsciiScreen writeCenter(String string, int y, Color foreground) {
-        if (string == null)
-            throw new NullPointerException("string must not be null" );
-
-        if (string.length() >= widthInCharacters)
-            throw new IllegalArgumentException("string.length() " + string.length() + " must be less than " + widthInCharacters + "." );
-
-        int x = (widthInCharacters - string.length()) / 2;
-
-        if (y < 0 || y >= heightInCharacters)
-            throw new IllegalArgumentException("y " + y + " must be within range [0," + heightInCharacters + ")" );
-
-        return write(string, x, y, foreground, defaultBackgroundColor);
+        return writeCenter(string, y, foreground, defaultBackgroundColor);
     }
 
     /**
@@ -842,36 +1782,574 @@ public class AsciiScreen extends ScreenAdapter {
         if (background == null)
             background = defaultBackgroundColor;
 
-        for (int i = 0; i < string.length(); i++) {
-            write(string.charAt(i), x + i, y, foreground, background);
+        storeSpan(string, 0, string.length(), x, y, Color.rgba8888(foreground), Color.rgba8888(background));
+        return this;
+    }
+
+    /**
+     * Write text into a box with the default colors, see {@link #writeText(CharSequence, int, int, int, int, int, Color, Color)}.
+     * @param text   the text to write, a newline starts a new line
+     * @param x      the distance from the left to the box
+     * @param y      the distance from the top to the box
+     * @param width  the width of the box
+     * @param height the height of the box
+     * @param style  an alignment of {@link TextLayout} combined with {@link TextLayout#WRAP} and {@link TextLayout#ELLIPSIS}
+     * @return this for convenient chaining of method calls
+     */
+    public AsciiScreen writeText(CharSequence text, int x, int y, int width, int height, int style) {
+        return writeText(text, x, y, width, height, style, null, null);
+    }
+
+    /**
+     * Write text into a box, broken into lines that fit: wrapped at spaces, aligned and cut off with an ellipsis as the style says.
+     * Layouts are cached, so writing the same text into the same box again, e.g. a log line or a tooltip every frame,
+     * skips the layout and allocates nothing. Only the characters of the text are written, the rest of the box is left as it is.
+     * This updates the cursor's position but not the default foreground or background colors.
+     * @param text       the text to write, a newline starts a new line
+     * @param x          the distance from the left to the box
+     * @param y          the distance from the top to the box
+     * @param width      the width of the box
+     * @param height     the height of the box
+     * @param style      an alignment of {@link TextLayout} combined with {@link TextLayout#WRAP} and {@link TextLayout#ELLIPSIS}
+     * @param foreground the foreground color or null to use the default
+     * @param background the background color or null to use the default
+     * @return this for convenient chaining of method calls
+     */
+    public AsciiScreen writeText(CharSequence text, int x, int y, int width, int height, int style, Color foreground, Color background) {
+        checkSection(x, y, width, height);
+        changed();
+
+        if (foreground == null)
+            foreground = defaultForegroundColor;
+
+        if (background == null)
+            background = defaultBackgroundColor;
+
+        TextLayout.Lines lines = textLayout.layout(text, width, height, style);
+        int fg = Color.rgba8888(foreground);
+        int bg = Color.rgba8888(background);
+        for (int i = 0; i < lines.getLineCount(); i++) {
+            int lineX = x + lines.getX(i);
+            storeSpan(text, lines.getStart(i), lines.getEnd(i), lineX, y + i, fg, bg);
+            storeSpan(TextLayout.ELLIPSIS_TEXT, 0, lines.getEllipsis(i), lineX + lines.getEnd(i) - lines.getStart(i), y + i, fg, bg);
         }
         return this;
     }
 
+    /**
+     * Gets the cache of text layouts behind {@link #writeText}, e.g. for measuring text before writing it.
+     * @return
+     */
+    public TextLayout getTextLayout() {
+        return textLayout;
+    }
+
+    /**
+     * Write a section of a character sequence to the specified position with the specified foreground and background colors.
+     * The arguments are checked once for the whole span, which makes this the fast way to fill in long rows of text.
+     * This updates the cursor's position but not the default foreground or background colors.
+     * @param chars      the characters to write
+     * @param start      the index of the first character to write
+     * @param end        the index after the last character to write
+     * @param x          the distance from the left to begin writing from
+     * @param y          the distance from the top to begin writing from
+     * @param foreground the foreground color or null to use the default
+     * @param background the background color or null to use the default
+     * @return this for convenient chaining of method calls
+     */
+    public AsciiScreen write(CharSequence chars, int start, int end, int x, int y, Color foreground, Color background) {
+        if (foreground == null)
+            foreground = defaultForegroundColor;
+
+        if (background == null)
+            background = defaultBackgroundColor;
+
+        return write(chars, start, end, x, y, Color.rgba8888(foreground), Color.rgba8888(background));
+    }
+
+    /**
+     * Write a section of a character sequence to the specified position with the specified packed foreground and background colors.
+     * The arguments are checked once for the whole span, which makes this the fast way to fill in long rows of text.
+     * This updates the cursor's position but not the default foreground or background colors.
+     * @param chars      the characters to write
+     * @param start      the index of the first character to write
+     * @param end        the index after the last character to write
+     * @param x          the distance from the left to begin writing from
+     * @param y          the distance from the top to begin writing from
+     * @param foreground the foreground color as RGBA8888, see {@link ColorPalette}
+     * @param background the background color as RGBA8888, see {@link ColorPalette}
+     * @return this for convenient chaining of method calls
+     */
+    public AsciiScreen write(CharSequence chars, int start, int end, int x, int y, int foreground, int background) {
+        if (chars == null)
+            throw new NullPointerException("chars must not be null." );
+
+        if (start < 0 || end > chars.length() || start > end)
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + chars.length() );
+
+        checkSpan(x, y, end - start);
+        changed();
+
+        storeSpan(chars, start, end, x, y, foreground, background);
+        return this;
+    }
+
+    /**
+     * Write a section of a character array to the specified position with the specified foreground and background colors.
+     * The arguments are checked once for the whole span, which makes this the fast way to fill in long rows of text.
+     * This updates the cursor's position but not the default foreground or background colors.
+     * @param chars      the characters to write
+     * @param offset     the index of the first character to write
+     * @param length     the number of characters to write
+     * @param x          the distance from the left to begin writing from
+     * @param y          the distance from the top to begin writing from
+     * @param foreground the foreground color or null to use the default
+     * @param background the background color or null to use the default
+     * @return this for convenient chaining of method calls
+     */
+    public AsciiScreen write(char[] chars, int offset, int length, int x, int y, Color foreground, Color background) {
+        if (chars == null)
+            throw new NullPointerException("chars must not be null." );
+
+        if (offset < 0 || length < 0 || offset + length > chars.length)
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + chars.length );
+
+        checkSpan(x, y, length);
+        changed();
+
+        if (foreground == null)
+            foreground = defaultForegroundColor;
+
+        if (background == null)
+            background = defaultBackgroundColor;
+
+        storeSpan(CharBuffer.wrap(chars), offset, offset + length, x, y, Color.rgba8888(foreground), Color.rgba8888(background));
+        return this;
+    }
+
+    /**
+     * Copy a section of cells, e.g. a prepared panel or map chunk, to the specified position.
+     * The section has to fit within both the source and the screen.
+     * This updates the cursor's position to the right of the section's last row.
+     * @param source     the cells to copy from
+     * @param sourceX    the distance from the left of the source to copy from
+     * @param sourceY    the distance from the top of the source to copy from
+     * @param x          the distance from the left to begin writing from
+     * @param y          the distance from the top to begin writing from
+     * @param width      the width of the section to copy
+     * @param height     the height of the section to copy
+     * @return this for convenient chaining of method calls
+     */
+    public AsciiScreen blit(CellBuffer source, int sourceX, int sourceY, int x, int y, int width, int height) {
+        if (source == null)
+            throw new NullPointerException("source must not be null." );
+
+        if (sourceX < 0 || sourceY < 0 || sourceX + width > source.getWidth() || sourceY + height > source.getHeight())
+            throw new IllegalArgumentException("section " + sourceX + "," + sourceY + " " + width + "x" + height + " must lie within the source " + source.getWidth() + "x" + source.getHeight() + "." );
+
+        checkSection(x, y, width, height);
+        changed();
+
+        for (int yo = 0; yo < height; yo++) {
+            for (int xo = 0; xo < width; xo++) {
+                int glyph = source.getGlyph(sourceX + xo, sourceY + yo);
+                checkGlyph(glyph);
+
+                if (cells.set(x + xo, y + yo, glyph, source.getForeground(sourceX + xo, sourceY + yo), source.getBackground(sourceX + xo, sourceY + yo)))
+                    dirtyCells.mark(x + xo, y + yo);
+            }
+        }
+        cursorX = x + width;
+        cursorY = y + height - 1;
+        return this;
+    }
+
+    /**
+     * Scroll the contents of a section of the screen, e.g. a log or message panel.
+     * Cells scrolled past the section's edges are lost, the uncovered cells are cleared with spaces in the default colors,
+     * or made transparent on layers above the base layer.
+     * Cells that only moved aren't drawn again, their pixels are moved along with them.
+     * This doesn't update the cursor's position.
+     * @param x      the distance from the left of the section to scroll
+     * @param y      the distance from the top of the section to scroll
+     * @param width  the width of the section to scroll
+     * @param height the height of the section to scroll
+     * @param dx     how far to move the contents to the right, negative values move them to the left
+     * @param dy     how far to move the contents down, negative values move them up
+     * @return this for convenient chaining of method calls
+     */
+    public AsciiScreen scroll(int x, int y, int width, int height, int dx, int dy) {
+        checkSection(x, y, width, height);
+        changed();
+
+        if (Math.abs(dx) >= width || Math.abs(dy) >= height) {
+            clearCells(x, y, width, height);
+            return this;
+        }
+        if (dx == 0 && dy == 0)
+            return this;
+
+        moveCells(x + Math.max(-dx, 0), y + Math.max(-dy, 0), width - Math.abs(dx), height - Math.abs(dy), x + Math.max(dx, 0), y + Math.max(dy, 0));
+        if (dx > 0)
+            clearCells(x, y, dx, height);
+        else if (dx < 0)
+            clearCells(x + width + dx, y, -dx, height);
+        if (dy > 0)
+            clearCells(x, y, width, dy);
+        else if (dy < 0)
+            clearCells(x, y + height + dy, width, -dy);
+        return this;
+    }
+
+    /**
+     * Copy a section of the screen to another position on the screen, the two may overlap.
+     * The copied cells aren't drawn again, their pixels are copied along with them.
+     * This updates the cursor's position to the right of the copy's last row.
+     * @param x      the distance from the left of the section to copy
+     * @param y      the distance from the top of the section to copy
+     * @param width  the width of the section to copy
+     * @param height the height of the section to copy
+     * @param toX    the distance from the left to copy the section to
+     * @param toY    the distance from the top to copy the section to
+     * @return this for convenient chaining of method calls
+     */
+    public AsciiScreen copyArea(int x, int y, int width, int height, int toX, int toY) {
+        checkSection(x, y, width, height);
+        checkSection(toX, toY, width, height);
+        changed();
+
+        if (toX != x || toY != y)
+            moveCells(x, y, width, height, toX, toY);
+        cursorX = toX + width;
+        cursorY = toY + height - 1;
+        return this;
+    }
+
+    /**
+     * Clears a section that is known to lie on the screen with spaces in the default colors,
+     * layers above the base layer become transparent.
+     */
+    private void clearCells(int x, int y, int width, int height) {
+        int glyph = layer > 0 ? TRANSPARENT : glyphOf(' ');
+        int foreground = layer > 0 ? 0 : Color.rgba8888(defaultForegroundColor);
+        int background = layer > 0 ? 0 : Color.rgba8888(defaultBackgroundColor);
+        for (int yo = y; yo < y + height; yo++) {
+            for (int xo = x; xo < x + width; xo++) {
+                if (cells.set(xo, yo, glyph, foreground, background))
+                    dirtyCells.mark(xo, yo);
+            }
+        }
+    }
+
+    /**
+     * Write text with ANSI escape sequences from the cursor's position on, e.g. the output of a tool or ANSI art.
+     * The parser keeps its colors and any sequence that was cut off between calls, see {@link AnsiParser}.
+     * This updates the cursor's position but not the default foreground or background colors.
+     * @param parser the parser to interpret the text with, made for this screen's font
+     * @param bytes  the text, all its remaining bytes are written
+     * @return this for convenient chaining of method calls
+     */
+    public AsciiScreen writeAnsi(AnsiParser parser, ByteBuffer bytes) {
+        if (parser == null)
+            throw new NullPointerException("parser must not be null." );
+
+        changed();
+        parser.setCursor(cursorX, cursorY);
+        parser.parse(bytes, cells, dirtyCells);
+        cursorX = parser.getCursorX();
+        cursorY = parser.getCursorY();
+        return this;
+    }
+
+    /**
+     * Write text with ANSI escape sequences from the cursor's position on, e.g. the output of a tool or ANSI art.
+     * The parser keeps its colors and any sequence that was cut off between calls, see {@link AnsiParser}.
+     * This updates the cursor's position but not the default foreground or background colors.
+     * @param parser the parser to interpret the text with, made for this screen's font
+     * @param chars  the text
+     * @return this for convenient chaining of method calls
+     */
+    public AsciiScreen writeAnsi(AnsiParser parser, CharSequence chars) {
+        if (parser == null)
+            throw new NullPointerException("parser must not be null." );
+
+        changed();
+        parser.setCursor(cursorX, cursorY);
+        parser.parse(chars, cells, dirtyCells);
+        cursorX = parser.getCursorX();
+        cursorY = parser.getCursorY();
+        return this;
+    }
+
+    /**
+     * Make a section of the current layer {@link #TRANSPARENT} so the layers below show through.
+     * This doesn't update the cursor's position.
+     * @param x      the distance from the left of the section to erase
+     * @param y      the distance from the top of the section to erase
+     * @param width  the width of the section to erase
+     * @param height the height of the section to erase
+     * @return this for convenient chaining of method calls
+     */
+    public AsciiScreen erase(int x, int y, int width, int height) {
+        if (layer == 0)
+            throw new IllegalStateException("the base layer can't be transparent." );
+
+        checkSection(x, y, width, height);
+        changed();
+
+        for (int yo = y; yo < y + height; yo++) {
+            for (int xo = x; xo < x + width; xo++) {
+                if (cells.set(xo, yo, TRANSPARENT, 0, 0))
+                    dirtyCells.mark(xo, yo);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Gets the glyph of a character, {@link #TRANSPARENT_CHARACTER} is transparent on layers above the base layer.
+     */
+    private int glyphOf(char character) {
+        if (character == TRANSPARENT_CHARACTER && layer > 0)
+            return TRANSPARENT;
+
+        int glyph = font.glyphOf(character);
+        if (glyph < 0)
+            throw new IllegalArgumentException("character " + character + " has no glyph in the font." );
+        return glyph;
+    }
+
+    private char charOf(int glyph) {
+        return glyph == TRANSPARENT ? TRANSPARENT_CHARACTER : font.charOf(glyph);
+    }
+
+    private void checkGlyph(int glyph) {
+        if ((glyph < 0 || glyph >= font.getGlyphCount()) && !(glyph == TRANSPARENT && layer > 0))
+            throw new IllegalArgumentException("glyph " + glyph + " must be within range [0," + font.getGlyphCount() + ")." );
+    }
+
+    private void checkSpan(int x, int y, int length) {
+        if (x < 0 || x >= widthInCharacters)
+            throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")." );
+
+        if (y < 0 || y >= heightInCharacters)
+            throw new IllegalArgumentException("y " + y + " must be within range [0," + heightInCharacters + ")." );
+
+        if (x + length > widthInCharacters)
+            throw new IllegalArgumentException("x + length " + (x + length) + " must be less than " + (widthInCharacters + 1) + "." );
+    }
+
+    private void checkSection(int x, int y, int width, int height) {
+        if (x < 0 || x >= widthInCharacters)
+            throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")." );
+
+        if (y < 0 || y >= heightInCharacters)
+            throw new IllegalArgumentException("y " + y + " must be within range [0," + heightInCharacters + ")." );
+
+        if (width < 1)
+            throw new IllegalArgumentException("width " + width + " must be greater than 0." );
+
+        if (height < 1)
+            throw new IllegalArgumentException("height " + height + " must be greater than 0." );
+
+        if (x + width > widthInCharacters)
+            throw new IllegalArgumentException("x + width " + (x + width) + " must be less than " + (widthInCharacters + 1) + "." );
+
+        if (y + height > heightInCharacters)
+            throw new IllegalArgumentException("y + height " + (y + height) + " must be less than " + (heightInCharacters + 1) + "." );
+    }
+
+    /**
+     * Stores a span of characters in a row that is known to fit, only the characters themselves are checked.
+     */
+    private void storeSpan(CharSequence chars, int start, int end, int x, int y, int fg, int bg) {
+        for (int i = start; i < end; i++) {
+            char character = chars.charAt(i);
+            int glyph = glyphOf(character);
+
+            if (cells.set(x + i - start, y, glyph, fg, bg))
+                dirtyCells.mark(x + i - start, y);
+        }
+        if (end > start) {
+            cursorX = x + end - start;
+            cursorY = y;
+        }
+    }
+
     public void withEachTile(TileTransformer transformer){
 		withEachTile(0, 0, widthInCharacters, heightInCharacters, transformer);
     }
 
+    /**
+     * Calls the transformer for every tile of the section that lies on the screen, row by row.
+     * The colors handed to the transformer are scratch copies of the stored values:
+     * assign a different color to change a tile, modifying them in place also works.
+     */
     public void withEachTile(int left, int top, int width, int height, TileTransformer transformer){
+		if (transformer == null)
+			throw new NullPointerException("transformer must not be null." );
+
+		int startX = Math.max(left, 0);
+		int startY = Math.max(top, 0);
+		int endX = Math.min(left + width, widthInCharacters);
+		int endY = Math.min(top + height, heightInCharacters);
+
+		if (startX < endX && startY < endY) {
+			changed();
+			transformRows(startX, endX, startY, endY, transformer, false);
+		}
+    }
+
+    public void withEachPackedTile(PackedTileTransformer transformer){
+		withEachPackedTile(0, 0, widthInCharacters, heightInCharacters, transformer);
+    }
+
+    /**
+     * Calls the transformer for every tile of the section that lies on the screen, row by row,
+     * handing it the glyph and packed colors as stored. Nothing gets allocated per tile.
+     */
+    public void withEachPackedTile(int left, int top, int width, int height, PackedTileTransformer transformer){
+		if (transformer == null)
+			throw new NullPointerException("transformer must not be null." );
+
+		int startX = Math.max(left, 0);
+		int startY = Math.max(top, 0);
+		int endX = Math.min(left + width, widthInCharacters);
+		int endY = Math.min(top + height, heightInCharacters);
+
+		if (startX < endX && startY < endY) {
+			changed();
+			transformPackedRows(startX, endX, startY, endY, transformer, false);
+		}
+    }
+
+    public void withEachTileParallel(TileTransformer transformer){
+		withEachTileParallel(0, 0, widthInCharacters, heightInCharacters, transformer);
+    }
+
+    /**
+     * Like {@link #withEachTile(int, int, int, int, TileTransformer)}, but the section is split into bands of rows
+     * that are transformed in parallel on the common fork join pool. Each band has its own scratch data.
+     * The transformer is called from several threads at once and must not depend on the order of the tiles.
+     */
+    public void withEachTileParallel(int left, int top, int width, int height, final TileTransformer transformer){
+		if (transformer == null)
+			throw new NullPointerException("transformer must not be null." );
+
+		final int startX = Math.max(left, 0);
+		final int endX = Math.min(left + width, widthInCharacters);
+		int startY = Math.max(top, 0);
+		int endY = Math.min(top + height, heightInCharacters);
+
+		if (startX >= endX || startY >= endY)
+			return;
+
+		changed();
+		ForkJoinPool.commonPool().invoke(new TileBands(new TileBands.Rows() {
+			@Override
+			public void transform(int startY, int endY) {
+				transformRows(startX, endX, startY, endY, transformer, true);
+			}
+		}, startY, endY, bandHeight(endX - startX)));
+		dirtyCells.updateRows(startY, endY);
+    }
+
+    public void withEachPackedTileParallel(PackedTileTransformer transformer){
+		withEachPackedTileParallel(0, 0, widthInCharacters, heightInCharacters, transformer);
+    }
+
+    /**
+     * Like {@link #withEachPackedTile(int, int, int, int, PackedTileTransformer)}, but the section is split into bands of rows
+     * that are transformed in parallel on the common fork join pool. Each band has its own scratch data.
+     * The transformer is called from several threads at once and must not depend on the order of the tiles.
+     */
+    public void withEachPackedTileParallel(int left, int top, int width, int height, final PackedTileTransformer transformer){
+		if (transformer == null)
+			throw new NullPointerException("transformer must not be null." );
+
+		final int startX = Math.max(left, 0);
+		final int endX = Math.min(left + width, widthInCharacters);
+		int startY = Math.max(top, 0);
+		int endY = Math.min(top + height, heightInCharacters);
+
+		if (startX >= endX || startY >= endY)
+			return;
+
+		changed();
+		ForkJoinPool.commonPool().invoke(new TileBands(new TileBands.Rows() {
+			@Override
+			public void transform(int startY, int endY) {
+				transformPackedRows(startX, endX, startY, endY, transformer, true);
+			}
+		}, startY, endY, bandHeight(endX - startX)));
+		dirtyCells.updateRows(startY, endY);
+    }
+
+    /**
+     * Gets the number of rows of a band that is worth handing to another thread.
+     */
+    private static int bandHeight(int width) {
+		return Math.max(1, MIN_BAND_CELLS / width);
+    }
+
+    /**
+     * Transforms a section that is known to lie on the screen.
+     * @param concurrent whether other rows are transformed at the same time, see {@link DirtyCells#markCell(int, int)}
+     */
+    private void transformRows(int startX, int endX, int startY, int endY, TileTransformer transformer, boolean concurrent){
 		AsciiCharacterData data = new AsciiCharacterData();
+		Color foreground = new Color();
+		Color background = new Color();
+
+    	for (int y = startY; y < endY; y++)
+    	for (int x = startX; x < endX; x++){
+    		Color.rgba8888ToColor(foreground, cells.getForeground(x, y));
+    		Color.rgba8888ToColor(background, cells.getBackground(x, y));
+    		int original = cells.getGlyph(x, y);
+    		char character = charOf(original);
+    		data.character = character;
+    		data.foregroundColor = foreground;
+    		data.backgroundColor = background;
 
-    	for (int x0 = 0; x0 < width; x0++)
-    	for (int y0 = 0; y0 < height; y0++){
-    		int x = left + x0;
-    		int y = top + y0;
+    		transformer.transformTile(x, y, data);
 
-    		if (x < 0 || y < 0 || x >= widthInCharacters || y >= heightInCharacters)
-    			continue;
+    		Color fg = data.foregroundColor == null ? defaultForegroundColor : data.foregroundColor;
+    		Color bg = data.backgroundColor == null ? defaultBackgroundColor : data.backgroundColor;
+    		// a glyph no character maps to stays as long as the transformer keeps the character
+    		int glyph = data.character == character ? original : glyphOf(data.character);
+
+    		if (cells.set(x, y, glyph, Color.rgba8888(fg), Color.rgba8888(bg))) {
+    			if (concurrent)
+    				dirtyCells.markCell(x, y);
+    			else
+    				dirtyCells.mark(x, y);
+    		}
+    	}
+    }
 
-    		data.character = chars[x][y];
-    		data.foregroundColor = foregroundColors[x][y];
-    		data.backgroundColor = backgroundColors[x][y];
+    /**
+     * Transforms a section that is known to lie on the screen.
+     * @param concurrent whether other rows are transformed at the same time, see {@link DirtyCells#markCell(int, int)}
+     */
+    private void transformPackedRows(int startX, int endX, int startY, int endY, PackedTileTransformer transformer, boolean concurrent){
+		PackedCharacterData data = new PackedCharacterData();
+
+    	for (int y = startY; y < endY; y++)
+    	for (int x = startX; x < endX; x++){
+    		data.glyph = cells.getGlyph(x, y);
+    		data.foregroundColor = cells.getForeground(x, y);
+    		data.backgroundColor = cells.getBackground(x, y);
 
     		transformer.transformTile(x, y, data);
 
-    		chars[x][y] = data.character;
-    		foregroundColors[x][y] = data.foregroundColor;
-    		backgroundColors[x][y] = data.backgroundColor;
+    		checkGlyph(data.glyph);
+
+    		if (cells.set(x, y, data.glyph, data.foregroundColor, data.backgroundColor)) {
+    			if (concurrent)
+    				dirtyCells.markCell(x, y);
+    			else
+    				dirtyCells.mark(x, y);
+    		}
     	}
     }
 }
@@ -0,0 +1,609 @@
+package asciiscreen;
+
+import com.badlogic.gdx.graphics.Color;
+
+/**
+ * A rectangle of an {@link AsciiScreen} that is written to like a screen of its own, e.g. a map pane, a message log,
+ * a status bar or a popup. A view has its own coordinates, starting at its upper left corner,
+ * its own cursor and its own default colors, and everything written outside of it is clipped.
+ * Views store straight into the screen's cells, so they cost no textures or frame buffers of their own
+ * and are drawn in the same pass as everything else.
+ * <p>
+ * Every view works on a layer of the screen, see {@link AsciiScreen#addLayer()}: overlays like popups go on a layer
+ * above the panes they cover and {@link #erase()} hides them again. The screen's current layer and cursor
+ * are left as they were by every method of a view.
+ * Views may overlap and may lie partly off the screen.
+ */
+public class AsciiView {
+	private final AsciiScreen screen;
+	private int x;
+	private int y;
+	private int width;
+	private int height;
+	private int layer;
+	private int cursorX;
+	private int cursorY;
+	private Color defaultForegroundColor;
+	private Color defaultBackgroundColor;
+	// what the screen was set to while a method of the view works on it
+	private int savedLayer;
+	private int savedCursorX;
+	private int savedCursorY;
+
+	/**
+	 * Creates a view on the screen's base layer.
+	 * @param screen
+	 * @param x      the distance from the left of the screen to the view, may be negative
+	 * @param y      the distance from the top of the screen to the view, may be negative
+	 * @param width
+	 * @param height
+	 */
+	public AsciiView(AsciiScreen screen, int x, int y, int width, int height) {
+		this(screen, x, y, width, height, 0);
+	}
+
+	/**
+	 * Creates a view on a layer of the screen.
+	 * @param layer the layer to write to, see {@link AsciiScreen#addLayer()}
+	 */
+	public AsciiView(AsciiScreen screen, int x, int y, int width, int height, int layer) {
+		if (screen == null)
+			throw new NullPointerException("screen must not be null." );
+
+		this.screen = screen;
+		setBounds(x, y, width, height);
+		setLayer(layer);
+		defaultForegroundColor = screen.getDefaultForegroundColor();
+		defaultBackgroundColor = screen.getDefaultBackgroundColor();
+	}
+
+	public AsciiScreen getScreen() {
+		return screen;
+	}
+
+	/**
+	 * Moves or resizes the view, the cells of the screen stay as they are.
+	 * The cursor is moved back to the upper left corner if it doesn't fit anymore.
+	 */
+	public void setBounds(int x, int y, int width, int height) {
+		if (width < 1)
+			throw new IllegalArgumentException("width " + width + " must be greater than 0." );
+
+		if (height < 1)
+			throw new IllegalArgumentException("height " + height + " must be greater than 0." );
+
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		if (cursorX >= width || cursorY >= height) {
+			cursorX = 0;
+			cursorY = 0;
+		}
+	}
+
+	/**
+	 * Gets the distance from the left of the screen to the view.
+	 * @return
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * Gets the distance from the top of the screen to the view.
+	 * @return
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Gets the width in characters.
+	 * @return
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height in characters.
+	 * @return
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Sets the layer of the screen the view writes to, higher layers are drawn over lower ones.
+	 * @param layer
+	 */
+	public void setLayer(int layer) {
+		if (layer < 0 || layer >= screen.getLayerCount())
+			throw new IllegalArgumentException("layer " + layer + " must be within range [0," + screen.getLayerCount() + ")." );
+
+		this.layer = layer;
+	}
+
+	public int getLayer() {
+		return layer;
+	}
+
+	/**
+	 * Gets the distance from the left of the view to the cursor.
+	 * @return
+	 */
+	public int getCursorX() {
+		return cursorX;
+	}
+
+	/**
+	 * Sets the distance from the left of the view to the cursor.
+	 * @param cursorX
+	 */
+	public void setCursorX(int cursorX) {
+		if (cursorX < 0 || cursorX >= width)
+			throw new IllegalArgumentException("cursorX " + cursorX + " must be within range [0," + width + ")." );
+
+		this.cursorX = cursorX;
+	}
+
+	/**
+	 * Gets the distance from the top of the view to the cursor.
+	 * @return
+	 */
+	public int getCursorY() {
+		return cursorY;
+	}
+
+	/**
+	 * Sets the distance from the top of the view to the cursor.
+	 * @param cursorY
+	 */
+	public void setCursorY(int cursorY) {
+		if (cursorY < 0 || cursorY >= height)
+			throw new IllegalArgumentException("cursorY " + cursorY + " must be within range [0," + height + ")." );
+
+		this.cursorY = cursorY;
+	}
+
+	public void setCursorPosition(int x, int y) {
+		setCursorX(x);
+		setCursorY(y);
+	}
+
+	public Color getDefaultForegroundColor() {
+		return defaultForegroundColor;
+	}
+
+	/**
+	 * Sets the color the view writes with when none is specified.
+	 * @param defaultForegroundColor the color, or null for {@link AsciiScreen#white}
+	 */
+	public void setDefaultForegroundColor(Color defaultForegroundColor) {
+		this.defaultForegroundColor = defaultForegroundColor == null ? AsciiScreen.white : defaultForegroundColor;
+	}
+
+	public Color getDefaultBackgroundColor() {
+		return defaultBackgroundColor;
+	}
+
+	/**
+	 * Sets the background the view writes and clears with when none is specified.
+	 * @param defaultBackgroundColor the color, or null for {@link AsciiScreen#black}
+	 */
+	public void setDefaultBackgroundColor(Color defaultBackgroundColor) {
+		this.defaultBackgroundColor = defaultBackgroundColor == null ? AsciiScreen.black : defaultBackgroundColor;
+	}
+
+	/**
+	 * Clears the whole view to the default background color and moves the cursor to the upper left corner.
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiView clear() {
+		return clear(' ', 0, 0, width, height, null, null);
+	}
+
+	/**
+	 * Clears a section of the view to a character, the part outside the view is clipped.
+	 * This moves the cursor to the upper left corner of the section.
+	 * @param character
+	 * @param x          the distance from the left of the view to the section
+	 * @param y          the distance from the top of the view to the section
+	 * @param width
+	 * @param height
+	 * @param foreground the foreground color, or null for the view's default
+	 * @param background the background color, or null for the view's default
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiView clear(char character, int x, int y, int width, int height, Color foreground, Color background) {
+		int left = Math.max(x + this.x, getLeft());
+		int top = Math.max(y + this.y, getTop());
+		int right = Math.min(x + this.x + width, getRight());
+		int bottom = Math.min(y + this.y + height, getBottom());
+		if (left < right && top < bottom) {
+			enter();
+			try {
+				screen.clear(character, left, top, right - left, bottom - top, packForeground(foreground), packBackground(background));
+			} finally {
+				leave();
+			}
+		}
+		cursorX = Math.max(x, 0);
+		cursorY = Math.max(y, 0);
+		return this;
+	}
+
+	/**
+	 * Makes the whole view {@link AsciiScreen#TRANSPARENT}, e.g. to close a popup. Only works on layers above the base layer.
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiView erase() {
+		return erase(0, 0, width, height);
+	}
+
+	/**
+	 * Makes a section of the view {@link AsciiScreen#TRANSPARENT}, the part outside the view is clipped.
+	 * Only works on layers above the base layer. This doesn't move the cursor.
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiView erase(int x, int y, int width, int height) {
+		if (layer == 0)
+			throw new IllegalStateException("the base layer can't be transparent." );
+
+		int left = Math.max(x + this.x, getLeft());
+		int top = Math.max(y + this.y, getTop());
+		int right = Math.min(x + this.x + width, getRight());
+		int bottom = Math.min(y + this.y + height, getBottom());
+		if (left < right && top < bottom) {
+			enter();
+			try {
+				screen.erase(left, top, right - left, bottom - top);
+			} finally {
+				leave();
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Writes a character at the cursor's position with the default colors and advances the cursor.
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiView write(char character) {
+		return write(character, cursorX, cursorY, null, null);
+	}
+
+	/**
+	 * Writes a character at the cursor's position and advances the cursor.
+	 * @param foreground the foreground color, or null for the view's default
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiView write(char character, Color foreground) {
+		return write(character, cursorX, cursorY, foreground, null);
+	}
+
+	/**
+	 * Writes a character at a position of the view with the default colors.
+	 * This moves the cursor to the right of the character.
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiView write(char character, int x, int y) {
+		return write(character, x, y, null, null);
+	}
+
+	/**
+	 * Writes a character at a position of the view, nothing is written if it lies outside.
+	 * This moves the cursor to the right of the character.
+	 * @param character
+	 * @param x          the distance from the left of the view
+	 * @param y          the distance from the top of the view
+	 * @param foreground the foreground color, or null for the view's default
+	 * @param background the background color, or null for the view's default
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiView write(char character, int x, int y, Color foreground, Color background) {
+		if (isVisible(x, y)) {
+			enter();
+			try {
+				screen.write(character, x + this.x, y + this.y, packForeground(foreground), packBackground(background));
+			} finally {
+				leave();
+			}
+		}
+		cursorX = x + 1;
+		cursorY = y;
+		return this;
+	}
+
+	/**
+	 * Writes characters at the cursor's position with the default colors and advances the cursor.
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiView write(CharSequence chars) {
+		return write(chars, cursorX, cursorY, null, null);
+	}
+
+	/**
+	 * Writes characters at the cursor's position and advances the cursor.
+	 * @param foreground the foreground color, or null for the view's default
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiView write(CharSequence chars, Color foreground) {
+		return write(chars, cursorX, cursorY, foreground, null);
+	}
+
+	/**
+	 * Writes characters at a position of the view with the default colors.
+	 * This moves the cursor to the right of the last character.
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiView write(CharSequence chars, int x, int y) {
+		return write(chars, x, y, null, null);
+	}
+
+	/**
+	 * Writes characters from a position of the view to the right, the characters outside the view are clipped.
+	 * Nothing wraps to the next row. This moves the cursor to the right of the last character.
+	 * @param chars
+	 * @param x          the distance from the left of the view to the first character
+	 * @param y          the distance from the top of the view
+	 * @param foreground the foreground color, or null for the view's default
+	 * @param background the background color, or null for the view's default
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiView write(CharSequence chars, int x, int y, Color foreground, Color background) {
+		if (chars == null)
+			throw new NullPointerException("chars must not be null." );
+
+		enter();
+		try {
+			writeSpan(chars, 0, chars.length(), x, y, packForeground(foreground), packBackground(background));
+		} finally {
+			leave();
+		}
+		cursorX = x + chars.length();
+		cursorY = y;
+		return this;
+	}
+
+	/**
+	 * Writes text into the whole view with the default colors, see {@link #writeText(CharSequence, int, int, int, int, int, Color, Color)}.
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiView writeText(CharSequence text, int style) {
+		return writeText(text, 0, 0, width, height, style, null, null);
+	}
+
+	/**
+	 * Writes text into a box of the view, broken into lines by the screen's {@link TextLayout}, the part outside the view is clipped.
+	 * Only the characters of the text are written, the rest of the box is left as it is.
+	 * This moves the cursor to the right of the last line.
+	 * @param text
+	 * @param x          the distance from the left of the view to the box
+	 * @param y          the distance from the top of the view to the box
+	 * @param width      the width of the box
+	 * @param height     the height of the box
+	 * @param style      an alignment of {@link TextLayout} combined with {@link TextLayout#WRAP} and {@link TextLayout#ELLIPSIS}
+	 * @param foreground the foreground color, or null for the view's default
+	 * @param background the background color, or null for the view's default
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiView writeText(CharSequence text, int x, int y, int width, int height, int style, Color foreground, Color background) {
+		TextLayout.Lines lines = screen.getTextLayout().layout(text, width, height, style);
+		int fg = packForeground(foreground);
+		int bg = packBackground(background);
+		enter();
+		try {
+			for (int i = 0; i < lines.getLineCount(); i++) {
+				int lineX = x + lines.getX(i);
+				int length = lines.getEnd(i) - lines.getStart(i);
+				writeSpan(text, lines.getStart(i), lines.getEnd(i), lineX, y + i, fg, bg);
+				writeSpan(TextLayout.ELLIPSIS_TEXT, 0, lines.getEllipsis(i), lineX + length, y + i, fg, bg);
+				cursorX = lineX + length + lines.getEllipsis(i);
+				cursorY = y + i;
+			}
+		} finally {
+			leave();
+		}
+		return this;
+	}
+
+	/**
+	 * Writes a section of characters from a position of the view, clipped to the view. Call between enter and leave.
+	 */
+	private void writeSpan(CharSequence chars, int start, int end, int x, int y, int foreground, int background) {
+		int screenX = x + this.x;
+		int screenY = y + this.y;
+		int from = Math.max(start + getLeft() - screenX, start);
+		int to = Math.min(start + getRight() - screenX, end);
+		if (screenY >= getTop() && screenY < getBottom() && from < to)
+			screen.write(chars, from, to, screenX + from - start, screenY, foreground, background);
+	}
+
+	/**
+	 * Moves the content of the view by the specified distance, e.g. up by one row for a message log.
+	 * The cells moved in from outside are cleared to the default background color.
+	 * This doesn't move the cursor.
+	 * @param dx the distance to move to the right, negative to move left
+	 * @param dy the distance to move down, negative to move up
+	 * @return this for convenient chaining of method calls
+	 */
+	public AsciiView scroll(int dx, int dy) {
+		int left = getLeft();
+		int top = getTop();
+		int width = getRight() - left;
+		int height = getBottom() - top;
+		if (width <= 0 || height <= 0 || (dx == 0 && dy == 0))
+			return this;
+
+		int cursorX = this.cursorX;
+		int cursorY = this.cursorY;
+		if (Math.abs(dx) >= width || Math.abs(dy) >= height) {
+			clear();
+		} else {
+			enter();
+			try {
+				screen.copyArea(left + Math.max(-dx, 0), top + Math.max(-dy, 0), width - Math.abs(dx), height - Math.abs(dy), left + Math.max(dx, 0), top + Math.max(dy, 0));
+			} finally {
+				leave();
+			}
+			// in the view's coordinates, the visible part may not start at its corner
+			int visibleX = left - this.x;
+			int visibleY = top - this.y;
+			if (dx > 0)
+				clear(' ', visibleX, visibleY, dx, height, null, null);
+			else if (dx < 0)
+				clear(' ', visibleX + width + dx, visibleY, -dx, height, null, null);
+			if (dy > 0)
+				clear(' ', visibleX, visibleY, width, dy, null, null);
+			else if (dy < 0)
+				clear(' ', visibleX, visibleY + height + dy, width, -dy, null, null);
+		}
+		this.cursorX = cursorX;
+		this.cursorY = cursorY;
+		return this;
+	}
+
+	/**
+	 * Transforms every visible cell of the view, see {@link AsciiScreen#withEachTile(TileTransformer)}.
+	 * The transformer gets the view's coordinates, colors set to null become the view's defaults.
+	 */
+	public void withEachTile(TileTransformer transformer) {
+		withEachTile(0, 0, width, height, transformer);
+	}
+
+	/**
+	 * Transforms the visible cells of a section of the view.
+	 * The transformer gets the view's coordinates, colors set to null become the view's defaults.
+	 */
+	public void withEachTile(int x, int y, int width, int height, TileTransformer transformer) {
+		int left = Math.max(x + this.x, getLeft());
+		int top = Math.max(y + this.y, getTop());
+		int right = Math.min(x + this.x + width, getRight());
+		int bottom = Math.min(y + this.y + height, getBottom());
+		if (left >= right || top >= bottom)
+			return;
+
+		enter();
+		try {
+			screen.withEachTile(left, top, right - left, bottom - top, local(transformer));
+		} finally {
+			leave();
+		}
+	}
+
+	/**
+	 * Transforms the packed values of every visible cell of the view, the transformer gets the view's coordinates.
+	 */
+	public void withEachPackedTile(final PackedTileTransformer transformer) {
+		int left = getLeft();
+		int top = getTop();
+		if (left >= getRight() || top >= getBottom())
+			return;
+
+		final int offsetX = x;
+		final int offsetY = y;
+		enter();
+		try {
+			screen.withEachPackedTile(left, top, getRight() - left, getBottom() - top, new PackedTileTransformer() {
+				@Override
+				public void transformTile(int x, int y, PackedCharacterData data) {
+					transformer.transformTile(x - offsetX, y - offsetY, data);
+				}
+			});
+		} finally {
+			leave();
+		}
+	}
+
+	/**
+	 * Transforms every visible cell of the view, spreading the rows over several threads,
+	 * see {@link AsciiScreen#withEachTileParallel(TileTransformer)}.
+	 */
+	public void withEachTileParallel(TileTransformer transformer) {
+		int left = getLeft();
+		int top = getTop();
+		if (left >= getRight() || top >= getBottom())
+			return;
+
+		enter();
+		try {
+			screen.withEachTileParallel(left, top, getRight() - left, getBottom() - top, local(transformer));
+		} finally {
+			leave();
+		}
+	}
+
+	/**
+	 * Wraps a transformer so it gets the view's coordinates and the view's default colors.
+	 */
+	private TileTransformer local(final TileTransformer transformer) {
+		final int offsetX = x;
+		final int offsetY = y;
+		final Color foreground = defaultForegroundColor;
+		final Color background = defaultBackgroundColor;
+		return new TileTransformer() {
+			@Override
+			public void transformTile(int x, int y, AsciiCharacterData data) {
+				transformer.transformTile(x - offsetX, y - offsetY, data);
+				if (data.foregroundColor == null)
+					data.foregroundColor = foreground;
+				if (data.backgroundColor == null)
+					data.backgroundColor = background;
+			}
+		};
+	}
+
+	/**
+	 * Gets whether a position of the view lies on the view and on the screen.
+	 */
+	private boolean isVisible(int x, int y) {
+		int screenX = x + this.x;
+		int screenY = y + this.y;
+		return x >= 0 && x < width && y >= 0 && y < height
+			&& screenX >= 0 && screenX < screen.getWidthInCharacters() && screenY >= 0 && screenY < screen.getHeightInCharacters();
+	}
+
+	// the visible part of the view in the screen's coordinates, empty if the view lies off the screen
+	private int getLeft() {
+		return Math.max(x, 0);
+	}
+
+	private int getTop() {
+		return Math.max(y, 0);
+	}
+
+	private int getRight() {
+		return Math.min(x + width, screen.getWidthInCharacters());
+	}
+
+	private int getBottom() {
+		return Math.min(y + height, screen.getHeightInCharacters());
+	}
+
+	private int packForeground(Color foreground) {
+		return Color.rgba8888(foreground == null ? defaultForegroundColor : foreground);
+	}
+
+	private int packBackground(Color background) {
+		return Color.rgba8888(background == null ? defaultBackgroundColor : background);
+	}
+
+	/**
+	 * Switches the screen to the view's layer, remembering what the screen was set to.
+	 */
+	private void enter() {
+		savedLayer = screen.getLayer();
+		savedCursorX = screen.getCursorX();
+		savedCursorY = screen.getCursorY();
+		if (savedLayer != layer)
+			screen.setLayer(layer);
+	}
+
+	private void leave() {
+		if (savedLayer != layer)
+			screen.setLayer(savedLayer);
+		screen.restoreCursor(savedCursorX, savedCursorY);
+	}
+}
@@ -0,0 +1,246 @@
+package asciiscreen;
+
+import com.badlogic.gdx.graphics.Color;
+
+/**
+ * Changes a section of cells over time, e.g. a blinking cursor, shimmering water or a damage flash.
+ * An animation is registered once with {@link AsciiScreen#addAnimation(CellAnimation)} and is then only run
+ * when its state changes next, so animated cells cost nothing in between and only the cells that actually
+ * change get drawn again.
+ * <p>
+ * Subclasses compute the state from the time alone, so a long frame simply skips steps.
+ * The section is given when the animation is created and must lie on the screen when it is added,
+ * the cells that lie outside of the screen after {@link AsciiScreen#resizeGrid(int, int)} are left out.
+ */
+public abstract class CellAnimation {
+	/**
+	 * Swaps the foreground of the cells between two colors, e.g. between the text and the background color for blinking text.
+	 */
+	public static class Blink extends CellAnimation {
+		private final double period;
+		private final int onColor;
+		private final int offColor;
+
+		/**
+		 * @param period   the seconds the cells spend on and then off
+		 * @param onColor  the foreground while on, which the animation starts with
+		 * @param offColor the foreground while off
+		 */
+		public Blink(int x, int y, int width, int height, float period, Color onColor, Color offColor) {
+			super(x, y, width, height);
+			if (!(period > 0))
+				throw new IllegalArgumentException("period " + period + " must be greater than 0." );
+
+			this.period = period;
+			this.onColor = Color.rgba8888(onColor);
+			this.offColor = Color.rgba8888(offColor);
+		}
+
+		@Override
+		protected double animate(double time, CellBuffer cells, DirtyCells dirty) {
+			long step = (long)(time / period);
+			int color = (step & 1) == 0 ? onColor : offColor;
+			int right = Math.min(x + width, cells.getWidth());
+			int bottom = Math.min(y + height, cells.getHeight());
+			for (int yo = y; yo < bottom; yo++) {
+				for (int xo = x; xo < right; xo++) {
+					if (cells.set(xo, yo, cells.getGlyph(xo, yo), color, cells.getBackground(xo, yo)))
+						dirty.mark(xo, yo);
+				}
+			}
+			return (step + 1) * period;
+		}
+	}
+
+	/**
+	 * Steps the foreground or background of the cells through a list of colors, over and over, e.g. for water or lava.
+	 * With a spread, neighbouring cells are some steps apart, which makes the colors wander across the section.
+	 */
+	public static class ColorCycle extends CellAnimation {
+		private final double stepTime;
+		private final int[] colors;
+		private final boolean background;
+		private final int spread;
+
+		/**
+		 * @param stepTime   the seconds each color is shown
+		 * @param colors     the colors to step through, packed RGBA8888
+		 * @param background whether to cycle the background instead of the foreground
+		 * @param spread     how many steps a cell is ahead of its left and upper neighbours, 0 to keep them all the same
+		 */
+		public ColorCycle(int x, int y, int width, int height, float stepTime, int[] colors, boolean background, int spread) {
+			super(x, y, width, height);
+			if (!(stepTime > 0))
+				throw new IllegalArgumentException("stepTime " + stepTime + " must be greater than 0." );
+
+			if (colors == null)
+				throw new NullPointerException("colors must not be null." );
+
+			if (colors.length < 1)
+				throw new IllegalArgumentException("colors must not be empty." );
+
+			this.stepTime = stepTime;
+			this.colors = colors.clone();
+			this.background = background;
+			this.spread = spread;
+		}
+
+		@Override
+		protected double animate(double time, CellBuffer cells, DirtyCells dirty) {
+			long step = (long)(time / stepTime);
+			int right = Math.min(x + width, cells.getWidth());
+			int bottom = Math.min(y + height, cells.getHeight());
+			for (int yo = y; yo < bottom; yo++) {
+				for (int xo = x; xo < right; xo++) {
+					// a negative spread runs the cycle backwards, the index wraps around to stay positive
+					int index = (int)((step + (long)(xo - x + yo - y) * spread) % colors.length);
+					if (index < 0)
+						index += colors.length;
+					int color = colors[index];
+					boolean changed = background
+						? cells.set(xo, yo, cells.getGlyph(xo, yo), cells.getForeground(xo, yo), color)
+						: cells.set(xo, yo, cells.getGlyph(xo, yo), color, cells.getBackground(xo, yo));
+					if (changed)
+						dirty.mark(xo, yo);
+				}
+			}
+			return (step + 1) * stepTime;
+		}
+	}
+
+	/**
+	 * Blends the foreground or background of the cells from one color to another in even steps and then ends,
+	 * e.g. a flash of red that fades back to black.
+	 */
+	public static class Fade extends CellAnimation {
+		private final double duration;
+		private final int steps;
+		private final int from;
+		private final int to;
+		private final boolean background;
+
+		/**
+		 * @param duration   the seconds from the first color to the last
+		 * @param steps      the number of steps to get there, e.g. 30 per second for a smooth fade
+		 * @param from       the color to start with
+		 * @param to         the color to end with
+		 * @param background whether to fade the background instead of the foreground
+		 */
+		public Fade(int x, int y, int width, int height, float duration, int steps, Color from, Color to, boolean background) {
+			super(x, y, width, height);
+			if (!(duration > 0))
+				throw new IllegalArgumentException("duration " + duration + " must be greater than 0." );
+
+			if (steps < 1)
+				throw new IllegalArgumentException("steps " + steps + " must be greater than 0." );
+
+			this.duration = duration;
+			this.steps = steps;
+			this.from = Color.rgba8888(from);
+			this.to = Color.rgba8888(to);
+			this.background = background;
+		}
+
+		@Override
+		protected double animate(double time, CellBuffer cells, DirtyCells dirty) {
+			int step = (int)Math.min(time / duration * steps, steps);
+			int color = blend(from, to, step, steps);
+			int right = Math.min(x + width, cells.getWidth());
+			int bottom = Math.min(y + height, cells.getHeight());
+			for (int yo = y; yo < bottom; yo++) {
+				for (int xo = x; xo < right; xo++) {
+					boolean changed = background
+						? cells.set(xo, yo, cells.getGlyph(xo, yo), cells.getForeground(xo, yo), color)
+						: cells.set(xo, yo, cells.getGlyph(xo, yo), color, cells.getBackground(xo, yo));
+					if (changed)
+						dirty.mark(xo, yo);
+				}
+			}
+			return step == steps ? -1 : (step + 1) * duration / steps;
+		}
+
+		/**
+		 * Blends two packed colors channel by channel, step of steps of the way from one to the other.
+		 */
+		private static int blend(int from, int to, int step, int steps) {
+			int color = 0;
+			for (int shift = 0; shift < 32; shift += 8) {
+				int a = from >>> shift & 0xff;
+				int b = to >>> shift & 0xff;
+				color |= (a + (b - a) * step / steps) << shift;
+			}
+			return color;
+		}
+	}
+
+	protected final int x;
+	protected final int y;
+	protected final int width;
+	protected final int height;
+	// kept by the screen's animation queue
+	int layer;
+	double start;
+	double next;
+	int index = -1;
+
+	/**
+	 * @param x      the distance from the left of the screen to the section
+	 * @param y      the distance from the top of the screen to the section
+	 * @param width
+	 * @param height
+	 */
+	protected CellAnimation(int x, int y, int width, int height) {
+		if (width < 1)
+			throw new IllegalArgumentException("width " + width + " must be greater than 0." );
+
+		if (height < 1)
+			throw new IllegalArgumentException("height " + height + " must be greater than 0." );
+
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the layer the animation works on, the screen's current layer when it was added.
+	 * @return
+	 */
+	public int getLayer() {
+		return layer;
+	}
+
+	/**
+	 * Gets whether the animation is added to a screen and hasn't ended yet.
+	 * @return
+	 */
+	public boolean isRunning() {
+		return index >= 0;
+	}
+
+	/**
+	 * Brings the cells of the section to their state at the specified time, marking the cells that change as dirty.
+	 * The cells that lie outside of the buffer must be left out.
+	 * @param time  the seconds since the animation was added
+	 * @param cells the cells of the animation's layer
+	 * @param dirty the dirty cells of the layer
+	 * @return the time since the animation was added when its state changes next, or a negative number if it has ended
+	 */
+	protected abstract double animate(double time, CellBuffer cells, DirtyCells dirty);
+}
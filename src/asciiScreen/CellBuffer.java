@@ -0,0 +1,61 @@
+package asciiscreen;
+
+/**
+ * Storage for the cells of an {@link AsciiScreen}.
+ * Every cell holds a glyph index and a packed RGBA8888 foreground and background color
+ * (see {@link com.badlogic.gdx.graphics.Color#rgba8888(com.badlogic.gdx.graphics.Color)}).
+ * Cells are addressed by column and row, the origin (0,0) is the upper left corner.
+ * Implementations don't check bounds, callers are expected to validate their arguments first.
+ */
+public interface CellBuffer {
+	/**
+	 * Gets the width in cells.
+	 * @return
+	 */
+	public int getWidth();
+
+	/**
+	 * Gets the height in cells.
+	 * @return
+	 */
+	public int getHeight();
+
+	public int getGlyph(int x, int y);
+
+	public int getForeground(int x, int y);
+
+	public int getBackground(int x, int y);
+
+	/**
+	 * Stores a single cell.
+	 * @return true if the stored values differ from what the cell held before
+	 */
+	public boolean set(int x, int y, int glyph, int foreground, int background);
+
+	/**
+	 * Stores the same values in every cell of the section.
+	 */
+	public void fill(int x, int y, int width, int height, int glyph, int foreground, int background);
+
+	/**
+	 * Copies a section of cells to another position within this buffer.
+	 * The source and the destination may overlap.
+	 */
+	public void copy(int x, int y, int width, int height, int toX, int toY);
+
+	/**
+	 * Changes the size of the buffer, keeping the cells that lie within both the old and the new size.
+	 * The cells that weren't there before hold undefined values until they are stored.
+	 * Implementations should reuse their storage as long as it is large enough and otherwise grow it geometrically,
+	 * so a series of small resizes doesn't allocate every time.
+	 */
+	public void resize(int width, int height);
+
+	/**
+	 * Creates an empty buffer of the same kind with the specified size.
+	 * @param width
+	 * @param height
+	 * @return
+	 */
+	public CellBuffer create(int width, int height);
+}
@@ -0,0 +1,35 @@
+package asciiscreen;
+
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Draws the cells of an {@link AsciiScreen} into the currently bound frame buffer.
+ */
+interface CellRenderer extends Disposable {
+	/**
+	 * Draws the dirty cells and marks them clean.
+	 * @param cells      the cells of the screen
+	 * @param dirty      the cells that changed since the last paint, never empty
+	 * @param projection maps pixels of the frame buffer to clip space
+	 */
+	public void paint(CellBuffer cells, DirtyCells dirty, Matrix4 projection);
+
+	/**
+	 * Gets the number of cells the last paint drew.
+	 * @return
+	 */
+	public int getDrawnCells();
+
+	/**
+	 * Gets the number of quads the last paint drew.
+	 * @return
+	 */
+	public int getQuads();
+
+	/**
+	 * Gets the number of draw calls the last paint issued.
+	 * @return
+	 */
+	public int getDrawCalls();
+}
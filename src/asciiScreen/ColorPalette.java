@@ -0,0 +1,270 @@
+package asciiscreen;
+
+import com.badlogic.gdx.graphics.Color;
+
+/**
+ * Colors as packed RGBA8888 ints, the way {@link AsciiScreen} stores them.
+ * The constants match the default values of the colors in {@link AsciiScreen}, and the static helpers shade
+ * and mix packed colors without creating a {@link Color}.
+ * <p>
+ * An instance maps colors to small indices. The 16 default colors always take the indices 0 to 15,
+ * any other color gets interned on first use, and once the palette is full the least recently used one
+ * gives up its index.
+ */
+public class ColorPalette {
+	public static final int BLACK = 0x000000ff;
+	public static final int RED = 0x7f0000ff;
+	public static final int GREEN = 0x007f00ff;
+	public static final int YELLOW = 0x7f7f00ff;
+	public static final int BLUE = 0x00007fff;
+	public static final int MAGENTA = 0x7f007fff;
+	public static final int CYAN = 0x007f7fff;
+	public static final int WHITE = 0xbfbfbfff;
+	public static final int BRIGHT_BLACK = 0x7f7f7fff;
+	public static final int BRIGHT_RED = 0xff0000ff;
+	public static final int BRIGHT_GREEN = 0x00ff00ff;
+	public static final int BRIGHT_YELLOW = 0xffff00ff;
+	public static final int BRIGHT_BLUE = 0x0000ffff;
+	public static final int BRIGHT_MAGENTA = 0xff00ffff;
+	public static final int BRIGHT_CYAN = 0x00ffffff;
+	public static final int BRIGHT_WHITE = 0xffffffff;
+
+	/**
+	 * The number of colors that are always in the palette.
+	 */
+	public static final int DEFAULT_COLORS = 16;
+
+	private static final int[] DEFAULTS = {
+		BLACK, RED, GREEN, YELLOW, BLUE, MAGENTA, CYAN, WHITE,
+		BRIGHT_BLACK, BRIGHT_RED, BRIGHT_GREEN, BRIGHT_YELLOW, BRIGHT_BLUE, BRIGHT_MAGENTA, BRIGHT_CYAN, BRIGHT_WHITE
+	};
+
+	private final int[] colors;
+	private final Color[] instances;
+	// least recently used order of the interned colors, the default ones are never in it
+	private final int[] newer;
+	private final int[] older;
+	private int newest = -1;
+	private int oldest = -1;
+	private int size;
+	// open addressing from color to index + 1, 0 is an empty slot
+	private final int[] slots;
+	private final int mask;
+	private final int shift;
+
+	/**
+	 * Creates a palette with room for 256 colors.
+	 */
+	public ColorPalette() {
+		this(256);
+	}
+
+	/**
+	 * Creates a palette with room for the specified number of colors, including the 16 default ones.
+	 * @param capacity
+	 */
+	public ColorPalette(int capacity) {
+		if (capacity <= DEFAULT_COLORS)
+			throw new IllegalArgumentException("capacity " + capacity + " must be greater than " + DEFAULT_COLORS + "." );
+
+		colors = new int[capacity];
+		instances = new Color[capacity];
+		newer = new int[capacity];
+		older = new int[capacity];
+		slots = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+		mask = slots.length - 1;
+		shift = Integer.numberOfLeadingZeros(mask);
+
+		for (int color : DEFAULTS) {
+			colors[size] = color;
+			slots[findSlot(color)] = ++size;
+		}
+	}
+
+	/**
+	 * Gets the number of colors the palette holds at most.
+	 * @return
+	 */
+	public int getCapacity() {
+		return colors.length;
+	}
+
+	/**
+	 * Gets the number of colors currently in the palette.
+	 * @return
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the color with the specified index.
+	 * @param index
+	 * @return the packed color
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= size)
+			throw new IllegalArgumentException("index " + index + " must be within range [0," + size + ")." );
+
+		return colors[index];
+	}
+
+	/**
+	 * Gets the index of a color, interning it if it isn't in the palette yet.
+	 * The index stays valid until {@link #getCapacity()} other colors were interned after the last time it was asked for.
+	 * @param rgba8888 the packed color
+	 * @return the index
+	 */
+	public int indexOf(int rgba8888) {
+		int slot = findSlot(rgba8888);
+		int index = slots[slot] - 1;
+		if (index >= 0) {
+			if (index >= DEFAULT_COLORS)
+				touch(index);
+			return index;
+		}
+
+		if (size < colors.length) {
+			index = size++;
+		} else {
+			index = oldest;
+			unlink(index);
+			removeSlot(colors[index]);
+			instances[index] = null;
+			slot = findSlot(rgba8888);
+		}
+		colors[index] = rgba8888;
+		slots[slot] = index + 1;
+		link(index);
+		return index;
+	}
+
+	/**
+	 * Gets the index of a color, interning it if it isn't in the palette yet.
+	 * @param color
+	 * @return the index
+	 */
+	public int indexOf(Color color) {
+		return indexOf(Color.rgba8888(color));
+	}
+
+	/**
+	 * Gets a color instance for the specified index, it's created once and then shared.
+	 * It must not be modified.
+	 * @param index
+	 * @return
+	 */
+	public Color getColor(int index) {
+		int color = get(index);
+		if (instances[index] == null) {
+			instances[index] = new Color();
+			Color.rgba8888ToColor(instances[index], color);
+		}
+		return instances[index];
+	}
+
+	/**
+	 * Packs a color.
+	 * @param r the red component, from 0 to 1
+	 * @param g the green component, from 0 to 1
+	 * @param b the blue component, from 0 to 1
+	 * @param a the alpha component, from 0 to 1
+	 * @return the packed color
+	 */
+	public static int rgba8888(float r, float g, float b, float a) {
+		return Color.rgba8888(clamp(r), clamp(g), clamp(b), clamp(a));
+	}
+
+	/**
+	 * Multiplies the red, green and blue components of a packed color, keeping its alpha.
+	 * @param rgba8888 the packed color
+	 * @param factor
+	 * @return the packed shaded color
+	 */
+	public static int shade(int rgba8888, float factor) {
+		factor = Math.max(factor, 0);
+		int r = Math.min(255, (int)((rgba8888 >>> 24) * factor));
+		int g = Math.min(255, (int)(((rgba8888 >>> 16) & 0xff) * factor));
+		int b = Math.min(255, (int)(((rgba8888 >>> 8) & 0xff) * factor));
+		return (r << 24) | (g << 16) | (b << 8) | (rgba8888 & 0xff);
+	}
+
+	/**
+	 * Linearly interpolates between two packed colors.
+	 * @param from the packed color at 0
+	 * @param to   the packed color at 1
+	 * @param t    the position between the colors, from 0 to 1
+	 * @return the packed mixed color
+	 */
+	public static int mix(int from, int to, float t) {
+		t = clamp(t);
+		int result = 0;
+		for (int shift = 24; shift >= 0; shift -= 8) {
+			int a = (from >>> shift) & 0xff;
+			int b = (to >>> shift) & 0xff;
+			result |= (a + Math.round((b - a) * t)) << shift;
+		}
+		return result;
+	}
+
+	private static float clamp(float value) {
+		return value < 0 ? 0 : value > 1 ? 1 : value;
+	}
+
+	private int home(int color) {
+		return (color * 0x9E3779B9) >>> shift;
+	}
+
+	/**
+	 * Finds the slot holding the color, or the empty slot it would go into.
+	 */
+	private int findSlot(int color) {
+		int slot = home(color);
+		while (slots[slot] != 0 && colors[slots[slot] - 1] != color)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	private void removeSlot(int color) {
+		int hole = findSlot(color);
+		slots[hole] = 0;
+		// shift back the entries of the same probe run that can't be found past the hole anymore
+		for (int slot = (hole + 1) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			int home = home(colors[slots[slot] - 1]);
+			boolean reachable = hole <= slot ? hole < home && home <= slot : hole < home || home <= slot;
+			if (!reachable) {
+				slots[hole] = slots[slot];
+				slots[slot] = 0;
+				hole = slot;
+			}
+		}
+	}
+
+	private void link(int index) {
+		older[index] = newest;
+		newer[index] = -1;
+		if (newest >= 0)
+			newer[newest] = index;
+		newest = index;
+		if (oldest < 0)
+			oldest = index;
+	}
+
+	private void unlink(int index) {
+		if (newer[index] >= 0)
+			older[newer[index]] = older[index];
+		else
+			newest = older[index];
+		if (older[index] >= 0)
+			newer[older[index]] = newer[index];
+		else
+			oldest = newer[index];
+	}
+
+	private void touch(int index) {
+		if (index != newest) {
+			unlink(index);
+			link(index);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package asciiscreen;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A {@link CellBuffer} backed by an off-heap {@link ByteBuffer} in native byte order.
+ * The layout is the same as {@link ArrayCellBuffer}, 12 bytes per cell, row-major.
+ */
+public class DirectCellBuffer implements CellBuffer {
+	static final int CELL_BYTES = ArrayCellBuffer.STRIDE * 4;
+
+	private int width;
+	private int height;
+	private ByteBuffer data;
+	// a row of cells in transit, for copying
+	private byte[] row;
+
+	public DirectCellBuffer(int width, int height) {
+		if (width < 1)
+			throw new IllegalArgumentException("width " + width + " must be greater than 0." );
+
+		if (height < 1)
+			throw new IllegalArgumentException("height " + height + " must be greater than 0." );
+
+		this.width = width;
+		this.height = height;
+		this.data = ByteBuffer.allocateDirect(width * height * CELL_BYTES).order(ByteOrder.nativeOrder());
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int getGlyph(int x, int y) {
+		return data.getInt((y * width + x) * CELL_BYTES);
+	}
+
+	@Override
+	public int getForeground(int x, int y) {
+		return data.getInt((y * width + x) * CELL_BYTES + 4);
+	}
+
+	@Override
+	public int getBackground(int x, int y) {
+		return data.getInt((y * width + x) * CELL_BYTES + 8);
+	}
+
+	@Override
+	public boolean set(int x, int y, int glyph, int foreground, int background) {
+		int i = (y * width + x) * CELL_BYTES;
+		if (data.getInt(i) == glyph && data.getInt(i + 4) == foreground && data.getInt(i + 8) == background)
+			return false;
+
+		data.putInt(i, glyph);
+		data.putInt(i + 4, foreground);
+		data.putInt(i + 8, background);
+		return true;
+	}
+
+	@Override
+	public void fill(int x, int y, int width, int height, int glyph, int foreground, int background) {
+		for (int yo = y; yo < y + height; yo++) {
+			int i = (yo * this.width + x) * CELL_BYTES;
+			int end = i + width * CELL_BYTES;
+			for (; i < end; i += CELL_BYTES) {
+				data.putInt(i, glyph);
+				data.putInt(i + 4, foreground);
+				data.putInt(i + 8, background);
+			}
+		}
+	}
+
+	@Override
+	public void copy(int x, int y, int width, int height, int toX, int toY) {
+		int length = width * CELL_BYTES;
+		if (row == null || row.length < length)
+			row = new byte[length];
+
+		ByteBuffer from = data.duplicate();
+		ByteBuffer to = data.duplicate();
+		// go against the direction of the move so overlapping rows aren't overwritten before they're read
+		boolean down = toY > y;
+		for (int i = 0; i < height; i++) {
+			int r = down ? height - 1 - i : i;
+			from.position(((y + r) * this.width + x) * CELL_BYTES);
+			from.get(row, 0, length);
+			to.position(((toY + r) * this.width + toX) * CELL_BYTES);
+			to.put(row, 0, length);
+		}
+	}
+
+	@Override
+	public void resize(int width, int height) {
+		if (width < 1)
+			throw new IllegalArgumentException("width " + width + " must be greater than 0." );
+
+		if (height < 1)
+			throw new IllegalArgumentException("height " + height + " must be greater than 0." );
+
+		ByteBuffer target = data;
+		if (width * height * CELL_BYTES > data.capacity())
+			target = ByteBuffer.allocateDirect(Math.max(width * height, data.capacity() / CELL_BYTES * 3 / 2) * CELL_BYTES).order(ByteOrder.nativeOrder());
+
+		int rows = Math.min(height, this.height);
+		int length = Math.min(width, this.width) * CELL_BYTES;
+		if (row == null || row.length < length)
+			row = new byte[length];
+
+		ByteBuffer from = data.duplicate();
+		ByteBuffer to = target.duplicate();
+		// wider rows move toward the end of the buffer, so they go from the bottom up within the same buffer
+		boolean up = target == data && width > this.width;
+		if (target != data || width != this.width) {
+			for (int i = 0; i < rows; i++) {
+				int y = up ? rows - 1 - i : i;
+				from.position(y * this.width * CELL_BYTES);
+				from.get(row, 0, length);
+				to.position(y * width * CELL_BYTES);
+				to.put(row, 0, length);
+			}
+		}
+		data = target;
+		this.width = width;
+		this.height = height;
+	}
+
+	@Override
+	public CellBuffer create(int width, int height) {
+		return new DirectCellBuffer(width, height);
+	}
+
+	/**
+	 * Gets the backing buffer, e.g. for uploading it to the GPU or writing it to a channel.
+	 * Its capacity may exceed the cells, and growing the buffer with {@link #resize(int, int)} replaces it.
+	 * @return
+	 */
+	public ByteBuffer getByteBuffer() {
+		return data;
+	}
+}
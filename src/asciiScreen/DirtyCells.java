@@ -0,0 +1,279 @@
+package asciiscreen;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of which cells changed since they were last painted.
+ * Every row has its own bitset, and a second bitset over the rows tells which rows have any dirty cell at all,
+ * so finding the dirty cells costs time in proportion to how many there are rather than to the screen size.
+ */
+public class DirtyCells {
+	private int width;
+	private int height;
+	private int wordsPerRow;
+	private long[] cells;
+	private long[] rows;
+
+	public DirtyCells(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.wordsPerRow = (width + 63) >>> 6;
+		this.cells = new long[wordsPerRow * height];
+		this.rows = new long[(height + 63) >>> 6];
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Marks a single cell as dirty.
+	 */
+	public void mark(int x, int y) {
+		cells[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+		rows[y >>> 6] |= 1L << y;
+	}
+
+	/**
+	 * Marks a single cell as dirty without updating the index of dirty rows.
+	 * Every row has words of its own, so cells of different rows may be marked from different threads.
+	 * Call {@link #updateRows(int, int)} once they are done.
+	 */
+	void markCell(int x, int y) {
+		cells[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+	}
+
+	/**
+	 * Updates the index of dirty rows after cells were marked with {@link #markCell(int, int)}.
+	 * @param fromY the first row to update
+	 * @param toY   the row after the last one to update
+	 */
+	void updateRows(int fromY, int toY) {
+		for (int y = fromY; y < toY; y++) {
+			int row = y * wordsPerRow;
+			for (int w = 0; w < wordsPerRow; w++) {
+				if (cells[row + w] != 0) {
+					rows[y >>> 6] |= 1L << y;
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks every cell of the section as dirty.
+	 */
+	public void mark(int x, int y, int width, int height) {
+		if (width < 1 || height < 1)
+			return;
+
+		int firstWord = x >>> 6;
+		int lastWord = (x + width - 1) >>> 6;
+		long firstMask = -1L << x;
+		long lastMask = -1L >>> -(x + width);
+		for (int yo = y; yo < y + height; yo++) {
+			int row = yo * wordsPerRow;
+			if (firstWord == lastWord) {
+				cells[row + firstWord] |= firstMask & lastMask;
+			} else {
+				cells[row + firstWord] |= firstMask;
+				for (int w = firstWord + 1; w < lastWord; w++)
+					cells[row + w] = -1L;
+				cells[row + lastWord] |= lastMask;
+			}
+			rows[yo >>> 6] |= 1L << yo;
+		}
+	}
+
+	/**
+	 * Copies the dirty state of a section to another position, the way {@link CellBuffer#copy} moves the cells.
+	 * The source and the destination may overlap.
+	 */
+	public void copy(int x, int y, int width, int height, int toX, int toY) {
+		boolean down = toY > y;
+		boolean right = toX > x;
+		for (int i = 0; i < height; i++) {
+			int r = down ? height - 1 - i : i;
+			for (int j = 0; j < width; j++) {
+				int c = right ? width - 1 - j : j;
+				int word = (toY + r) * wordsPerRow + ((toX + c) >>> 6);
+				if (isDirty(x + c, y + r))
+					cells[word] |= 1L << (toX + c);
+				else
+					cells[word] &= ~(1L << (toX + c));
+			}
+		}
+		for (int r = 0; r < height; r++) {
+			int row = toY + r;
+			rows[row >>> 6] &= ~(1L << row);
+		}
+		updateRows(toY, toY + height);
+	}
+
+	/**
+	 * Marks the whole screen as dirty.
+	 */
+	public void markAll() {
+		mark(0, 0, width, height);
+	}
+
+	public boolean isDirty(int x, int y) {
+		return (cells[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+	}
+
+	/**
+	 * @return true if no cell is dirty
+	 */
+	public boolean isEmpty() {
+		for (long word : rows)
+			if (word != 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Counts the dirty cells, in time proportional to the dirty rows.
+	 * @return
+	 */
+	public int count() {
+		int count = 0;
+		for (int y = nextDirtyRow(0); y >= 0; y = nextDirtyRow(y + 1)) {
+			int row = y * wordsPerRow;
+			for (int w = 0; w < wordsPerRow; w++)
+				count += Long.bitCount(cells[row + w]);
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the first row at or below the specified one that has a dirty cell.
+	 * @return the row or -1 if there is none
+	 */
+	public int nextDirtyRow(int fromY) {
+		if (fromY >= height)
+			return -1;
+
+		int w = fromY >>> 6;
+		long word = rows[w] & (-1L << fromY);
+		while (true) {
+			if (word != 0)
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+			if (++w == rows.length)
+				return -1;
+			word = rows[w];
+		}
+	}
+
+	/**
+	 * Finds the first dirty cell of the row at or right of the specified column.
+	 * @return the column or -1 if there is none
+	 */
+	public int nextDirty(int fromX, int y) {
+		if (fromX >= width)
+			return -1;
+
+		int row = y * wordsPerRow;
+		int w = fromX >>> 6;
+		long word = cells[row + w] & (-1L << fromX);
+		while (true) {
+			if (word != 0)
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+			if (++w == wordsPerRow)
+				return -1;
+			word = cells[row + w];
+		}
+	}
+
+	/**
+	 * Finds the first clean cell of the row at or right of the specified column, this ends a run of dirty cells.
+	 * @return the column or the width if the row is dirty up to its end
+	 */
+	public int nextClean(int fromX, int y) {
+		if (fromX >= width)
+			return width;
+
+		int row = y * wordsPerRow;
+		int w = fromX >>> 6;
+		long word = ~cells[row + w] & (-1L << fromX);
+		while (true) {
+			if (word != 0)
+				return Math.min((w << 6) + Long.numberOfTrailingZeros(word), width);
+			if (++w == wordsPerRow)
+				return width;
+			word = ~cells[row + w];
+		}
+	}
+
+	/**
+	 * Copies the dirty cells from one buffer to another and marks them clean.
+	 * The cells that actually change in the target get marked in the target's dirty cells.
+	 */
+	void copyDirty(CellBuffer from, CellBuffer to, DirtyCells toDirty) {
+		for (int y = nextDirtyRow(0); y >= 0; y = nextDirtyRow(y + 1)) {
+			for (int x = nextDirty(0, y); x >= 0; x = nextDirty(x + 1, y)) {
+				if (to.set(x, y, from.getGlyph(x, y), from.getForeground(x, y), from.getBackground(x, y)))
+					toDirty.mark(x, y);
+			}
+			clearRow(y);
+		}
+	}
+
+	/**
+	 * Marks every cell of the row as clean.
+	 */
+	public void clearRow(int y) {
+		int row = y * wordsPerRow;
+		for (int w = 0; w < wordsPerRow; w++)
+			cells[row + w] = 0;
+		rows[y >>> 6] &= ~(1L << y);
+	}
+
+	/**
+	 * Changes the size, keeping the dirty state of the cells within both the old and the new size.
+	 * The cells that weren't there before start out clean. The storage only grows when it runs out, and then geometrically.
+	 */
+	public void resize(int width, int height) {
+		int wordsPerRow = (width + 63) >>> 6;
+		long[] target = cells;
+		if (wordsPerRow * height > cells.length)
+			target = new long[Math.max(wordsPerRow * height, cells.length * 3 / 2)];
+
+		int keptRows = Math.min(height, this.height);
+		int keptWords = Math.min(wordsPerRow, this.wordsPerRow);
+		// wider rows move toward the end of the array, so they go from the bottom up within the same array
+		boolean up = target == cells && wordsPerRow > this.wordsPerRow;
+		for (int i = 0; i < keptRows; i++) {
+			int y = up ? keptRows - 1 - i : i;
+			System.arraycopy(cells, y * this.wordsPerRow, target, y * wordsPerRow, keptWords);
+			for (int w = keptWords; w < wordsPerRow; w++)
+				target[y * wordsPerRow + w] = 0;
+			// cells beyond a narrower width mustn't count as dirty
+			if (width < this.width && (width & 63) != 0)
+				target[y * wordsPerRow + wordsPerRow - 1] &= -1L >>> -width;
+		}
+		for (int i = keptRows * wordsPerRow; i < height * wordsPerRow; i++)
+			target[i] = 0;
+
+		this.cells = target;
+		this.width = width;
+		this.height = height;
+		this.wordsPerRow = wordsPerRow;
+		if (rows.length < (height + 63) >>> 6)
+			rows = new long[(height + 63) >>> 6];
+		else
+			Arrays.fill(rows, 0);
+		updateRows(0, height);
+	}
+
+	/**
+	 * Marks every cell as clean.
+	 */
+	public void clear() {
+		for (int y = nextDirtyRow(0); y >= 0; y = nextDirtyRow(y + 1))
+			clearRow(y);
+	}
+}
@@ -0,0 +1,176 @@
+package asciiscreen;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads the frames a {@link FrameWriter} wrote and applies them straight to a cell buffer, see there for the format.
+ */
+public class FrameReader {
+	// room for a frame to be a little longer than the worst case, e.g. a writer splitting a span
+	private static final int MAX_LENGTH_SLACK = 64;
+
+	private final ReadableByteChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocate(4096);
+	private int width;
+	private int height;
+	// the longest frame a screen of this size can take, longer ones are corrupt and aren't allocated for
+	private int maxLength;
+
+	/**
+	 * Creates a reader, the stream's header is read along with the first frame.
+	 * @param channel the channel to read from in blocking mode, it is not closed by the reader
+	 */
+	public FrameReader(ReadableByteChannel channel) {
+		if (channel == null)
+			throw new NullPointerException("channel must not be null." );
+
+		this.channel = channel;
+	}
+
+	/**
+	 * Gets the width in cells of the recorded screen, or 0 before the first frame was read.
+	 * @return
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height in cells of the recorded screen, or 0 before the first frame was read.
+	 * @return
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Reads the next frame and stores its cells.
+	 * @param cells the cells to store the frame in, the same size as the recorded screen
+	 * @param dirty where to mark the cells that changed, or null
+	 * @return false if the stream ended before the frame
+	 * @throws IOException if the channel fails or the stream is corrupt
+	 */
+	public boolean readFrame(CellBuffer cells, DirtyCells dirty) throws IOException {
+		return readFrame(cells, dirty, Integer.MAX_VALUE, true);
+	}
+
+	/**
+	 * Reads the next frame and stores its cells, glyphs from the specified count on count as corrupt.
+	 * @param transparent whether {@link AsciiScreen#TRANSPARENT} cells are allowed
+	 */
+	boolean readFrame(CellBuffer cells, DirtyCells dirty, int glyphCount, boolean transparent) throws IOException {
+		if (width == 0) {
+			if (!read(FrameWriter.HEADER_BYTES, true))
+				return false;
+
+			if (buffer.getInt() != FrameWriter.MAGIC)
+				throw new IOException("stream doesn't start with a frame header." );
+
+			width = buffer.getInt();
+			height = buffer.getInt();
+			if (width < 1 || height < 1)
+				throw new IOException("size " + width + "x" + height + " must be positive." );
+
+			long size = (long)width * height;
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("size " + width + "x" + height + " must not have more than " + Integer.MAX_VALUE + " cells." );
+
+			maxLength = (int)Math.min(size * FrameWriter.MAX_CELL_BYTES + MAX_LENGTH_SLACK, Integer.MAX_VALUE);
+		}
+		if (cells.getWidth() != width || cells.getHeight() != height)
+			throw new IllegalArgumentException("cells " + cells.getWidth() + "x" + cells.getHeight() + " must be " + width + "x" + height + "." );
+
+		if (!read(FrameWriter.FRAME_HEADER_BYTES, true))
+			return false;
+
+		byte type = buffer.get();
+		int length = buffer.getInt();
+		if (length < 0 || length > maxLength)
+			throw new IOException("frame length " + length + " must be within range [0," + maxLength + "]." );
+
+		read(length, false);
+		if (type == FrameWriter.SNAPSHOT) {
+			readRuns(cells, dirty, 0, width * height, glyphCount, transparent);
+		} else if (type == FrameWriter.DELTA) {
+			int end = 0;
+			while (buffer.hasRemaining()) {
+				int start = end + getVarint();
+				int count = getVarint();
+				if (start < end || count < 0 || start + count > width * height || start + count < start)
+					throw new IOException("span of " + count + " cells at " + start + " must lie within the screen." );
+
+				readRuns(cells, dirty, start, count, glyphCount, transparent);
+				end = start + count;
+			}
+		} else {
+			throw new IOException("frame type " + type + " is unknown." );
+		}
+		if (buffer.hasRemaining())
+			throw new IOException("frame has " + buffer.remaining() + " bytes left over." );
+		return true;
+	}
+
+	private void readRuns(CellBuffer cells, DirtyCells dirty, int index, int count, int glyphCount, boolean transparent) throws IOException {
+		int end = index + count;
+		while (index < end) {
+			int run = getVarint();
+			int glyph = getVarint();
+			if (buffer.remaining() < 8)
+				throw new EOFException("frame ends within a run." );
+
+			int foreground = buffer.getInt();
+			int background = buffer.getInt();
+			if (run < 1 || run > end - index)
+				throw new IOException("run of " + run + " cells must lie within its span." );
+
+			if ((glyph < 0 || glyph >= glyphCount) && !(glyph == AsciiScreen.TRANSPARENT && transparent))
+				throw new IOException("glyph " + glyph + " must be within range [0," + glyphCount + ")." );
+
+			for (int i = index; i < index + run; i++) {
+				int x = i % width;
+				int y = i / width;
+				if (cells.set(x, y, glyph, foreground, background) && dirty != null)
+					dirty.mark(x, y);
+			}
+			index += run;
+		}
+	}
+
+	private int getVarint() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 7 * FrameWriter.MAX_VARINT_BYTES; shift += 7) {
+			if (!buffer.hasRemaining())
+				throw new EOFException("frame ends within a number." );
+
+			byte b = buffer.get();
+			value |= (b & 0x7f) << shift;
+			if (b >= 0)
+				return value;
+		}
+		throw new IOException("number takes more than " + FrameWriter.MAX_VARINT_BYTES + " bytes." );
+	}
+
+	/**
+	 * Reads the specified number of bytes into the buffer and flips it for getting them.
+	 * @param orEnd whether the stream may end instead, before the first byte
+	 * @return false if the stream ended where it may
+	 */
+	private boolean read(int bytes, boolean orEnd) throws IOException {
+		if (buffer.capacity() < bytes)
+			buffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, bytes));
+		buffer.clear();
+		buffer.limit(bytes);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				if (orEnd && buffer.position() == 0)
+					return false;
+				throw new EOFException("stream ends within a frame." );
+			}
+		}
+		buffer.flip();
+		return true;
+	}
+}
@@ -0,0 +1,24 @@
+package asciiscreen;
+
+import java.io.IOException;
+
+/**
+ * Something that takes the frames of a screen, e.g. a {@link FrameWriter} recording them or an {@link AnsiWriter}
+ * showing them on a terminal. See {@link AsciiScreen#setRecorder(FrameSink)}.
+ */
+public interface FrameSink {
+	/**
+	 * Takes every cell, e.g. for the first frame.
+	 * @param cells
+	 * @throws IOException
+	 */
+	public void writeSnapshot(CellBuffer cells) throws IOException;
+
+	/**
+	 * Takes the cells that changed since the last frame, the dirty cells are left as they are.
+	 * @param cells
+	 * @param dirty
+	 * @throws IOException
+	 */
+	public void writeDelta(CellBuffer cells, DirtyCells dirty) throws IOException;
+}
@@ -0,0 +1,83 @@
+package asciiscreen;
+
+/**
+ * What went into rendering a single frame of an {@link AsciiScreen}, see {@link AsciiScreen#setStatsEnabled(boolean)}.
+ */
+public class FrameStats {
+	/**
+	 * Gets told about every frame right after it was rendered, on the render thread.
+	 */
+	public interface Listener {
+		/**
+		 * @param stats the frame's stats, only valid during the call
+		 */
+		public void frameRendered(FrameStats stats);
+	}
+
+	/**
+	 * The number of the frame, counting from 0 when stats were enabled.
+	 */
+	public long frame;
+	/**
+	 * The time spent in paint, drawing the changed cells into the frame buffer.
+	 */
+	public long paintNanos;
+	/**
+	 * The time spent drawing the frame buffer to the screen.
+	 */
+	public long blitNanos;
+	/**
+	 * The cells that changed since the last paint, which paint had to look at.
+	 */
+	public int dirtyCells;
+	/**
+	 * The cells the renderer actually drew, all of them for the shader renderer.
+	 */
+	public int drawnCells;
+	/**
+	 * The quads handed to the GPU, including moving pixels and the final blit.
+	 */
+	public int quads;
+	/**
+	 * The draw calls issued, e.g. sprite batch flushes.
+	 */
+	public int drawCalls;
+	/**
+	 * Whether the frame buffer had to be created, which redraws every cell.
+	 */
+	public boolean frameBufferCreated;
+	/**
+	 * The calls to write, clear, blit and the like since the last frame.
+	 */
+	public int writeCalls;
+
+	public void set(FrameStats stats) {
+		frame = stats.frame;
+		paintNanos = stats.paintNanos;
+		blitNanos = stats.blitNanos;
+		dirtyCells = stats.dirtyCells;
+		drawnCells = stats.drawnCells;
+		quads = stats.quads;
+		drawCalls = stats.drawCalls;
+		frameBufferCreated = stats.frameBufferCreated;
+		writeCalls = stats.writeCalls;
+	}
+
+	void reset() {
+		paintNanos = 0;
+		blitNanos = 0;
+		dirtyCells = 0;
+		drawnCells = 0;
+		quads = 0;
+		drawCalls = 0;
+		frameBufferCreated = false;
+		writeCalls = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "frame " + frame + ": paint " + paintNanos + " ns, blit " + blitNanos + " ns, " + dirtyCells + " dirty cells, "
+			+ drawnCells + " drawn cells, " + quads + " quads, " + drawCalls + " draw calls, " + writeCalls + " write calls"
+			+ (frameBufferCreated ? ", frame buffer created" : "");
+	}
+}
@@ -0,0 +1,94 @@
+package asciiscreen;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The stats of the most recent frames in a ring buffer.
+ * The render thread records frames without locking and any other thread may read them at the same time,
+ * a read that gets overtaken by the render thread reports the frame as gone instead of returning torn numbers.
+ * This is a sequence lock: the slots are atomic so neither the recorder's stores nor the reader's loads
+ * can move across the frame count that guards them.
+ */
+public class FrameStatsHistory {
+	private static final int FIELDS = 9;
+
+	private final int capacity;
+	private final int mask;
+	// the fields of every frame, FIELDS longs each, written before the frame count is advanced
+	private final AtomicLongArray slots;
+	// the number of frames recorded so far
+	private final AtomicLong frames = new AtomicLong();
+
+	/**
+	 * @param capacity the number of frames to keep, rounded up to a power of two
+	 */
+	public FrameStatsHistory(int capacity) {
+		if (capacity < 1 || capacity > 1 << 24)
+			throw new IllegalArgumentException("capacity " + capacity + " must be within range [1," + (1 << 24) + "]." );
+
+		this.capacity = Integer.highestOneBit(capacity * 2 - 1);
+		this.mask = this.capacity - 1;
+		this.slots = new AtomicLongArray(this.capacity * FIELDS);
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the number of frames recorded so far, the latest frame is one less.
+	 * @return
+	 */
+	public long getFrameCount() {
+		return frames.get();
+	}
+
+	/**
+	 * Records the next frame, only ever called by one thread at a time.
+	 * The frame's number is set to the count of frames recorded before it.
+	 */
+	void record(FrameStats stats) {
+		long frame = frames.get();
+		stats.frame = frame;
+		int i = (int)(frame & mask) * FIELDS;
+		// ordered stores can't move ahead of the count that published the previous frame
+		slots.lazySet(i, frame);
+		slots.lazySet(i + 1, stats.paintNanos);
+		slots.lazySet(i + 2, stats.blitNanos);
+		slots.lazySet(i + 3, stats.dirtyCells);
+		slots.lazySet(i + 4, stats.drawnCells);
+		slots.lazySet(i + 5, stats.quads);
+		slots.lazySet(i + 6, stats.drawCalls);
+		slots.lazySet(i + 7, stats.frameBufferCreated ? 1 : 0);
+		slots.lazySet(i + 8, stats.writeCalls);
+		// publishes the slot to readers
+		frames.set(frame + 1);
+	}
+
+	/**
+	 * Copies the stats of a frame.
+	 * @param frame the frame's number
+	 * @param stats where to copy them
+	 * @return false if the frame wasn't recorded yet or was overwritten already
+	 */
+	public boolean get(long frame, FrameStats stats) {
+		long count = frames.get();
+		if (frame < 0 || frame >= count || count - frame > capacity)
+			return false;
+
+		int i = (int)(frame & mask) * FIELDS;
+		// volatile loads, which can't be put off past the frame count read below
+		stats.frame = slots.get(i);
+		stats.paintNanos = slots.get(i + 1);
+		stats.blitNanos = slots.get(i + 2);
+		stats.dirtyCells = (int)slots.get(i + 3);
+		stats.drawnCells = (int)slots.get(i + 4);
+		stats.quads = (int)slots.get(i + 5);
+		stats.drawCalls = (int)slots.get(i + 6);
+		stats.frameBufferCreated = slots.get(i + 7) != 0;
+		stats.writeCalls = (int)slots.get(i + 8);
+		// the slot may have been reused while it was copied, the recorder only writes the slot of frame count
+		return frames.get() - frame <= capacity - 1 && stats.frame == frame;
+	}
+}
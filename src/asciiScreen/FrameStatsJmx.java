@@ -0,0 +1,151 @@
+package asciiscreen;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Publishes the frame stats of a screen as an MXBean, e.g. for watching them in JConsole.
+ * This is kept apart from the screen, so platforms without JMX never load it.
+ */
+public class FrameStatsJmx implements FrameStatsMXBean {
+	private static final int PAINT_NANOS = 0;
+	private static final int BLIT_NANOS = 1;
+	private static final int DIRTY_CELLS = 2;
+	private static final int DRAWN_CELLS = 3;
+	private static final int QUADS = 4;
+	private static final int DRAW_CALLS = 5;
+	private static final int WRITE_CALLS = 6;
+	private static final int FRAME_BUFFERS_CREATED = 7;
+
+	private final AsciiScreen screen;
+	// scratch space for adding up the history, guarded by this
+	private final FrameStats frame = new FrameStats();
+	private final long[] sums = new long[8];
+	private long maxPaintNanos;
+	private int frames;
+
+	public FrameStatsJmx(AsciiScreen screen) {
+		if (screen == null)
+			throw new NullPointerException("screen must not be null." );
+
+		this.screen = screen;
+	}
+
+	/**
+	 * Registers the stats of a screen with the platform's MBean server.
+	 * @param screen
+	 * @param name the object name, e.g. "asciiscreen:type=FrameStats"
+	 * @return the name the stats were registered under
+	 * @throws JMException if the name is malformed or taken
+	 */
+	public static ObjectName register(AsciiScreen screen, String name) throws JMException {
+		ObjectName objectName = new ObjectName(name);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new FrameStatsJmx(screen), objectName);
+		return objectName;
+	}
+
+	/**
+	 * Removes stats registered with {@link #register(AsciiScreen, String)}.
+	 * @param name
+	 * @throws JMException if nothing is registered under the name
+	 */
+	public static void unregister(ObjectName name) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+	}
+
+	@Override
+	public boolean isStatsEnabled() {
+		return screen.isStatsEnabled();
+	}
+
+	@Override
+	public long getFrameCount() {
+		FrameStatsHistory history = screen.getStatsHistory();
+		return history == null ? 0 : history.getFrameCount();
+	}
+
+	@Override
+	public synchronized double getAveragePaintNanos() {
+		return average(PAINT_NANOS);
+	}
+
+	@Override
+	public synchronized long getMaxPaintNanos() {
+		sum();
+		return maxPaintNanos;
+	}
+
+	@Override
+	public synchronized double getAverageBlitNanos() {
+		return average(BLIT_NANOS);
+	}
+
+	@Override
+	public synchronized double getAverageDirtyCells() {
+		return average(DIRTY_CELLS);
+	}
+
+	@Override
+	public synchronized double getAverageDrawnCells() {
+		return average(DRAWN_CELLS);
+	}
+
+	@Override
+	public synchronized double getAverageQuads() {
+		return average(QUADS);
+	}
+
+	@Override
+	public synchronized double getAverageDrawCalls() {
+		return average(DRAW_CALLS);
+	}
+
+	@Override
+	public synchronized double getAverageWriteCalls() {
+		return average(WRITE_CALLS);
+	}
+
+	@Override
+	public synchronized int getFrameBuffersCreated() {
+		sum();
+		return (int)sums[FRAME_BUFFERS_CREATED];
+	}
+
+	private double average(int field) {
+		return sum() == 0 ? 0 : (double)sums[field] / frames;
+	}
+
+	/**
+	 * Adds up the frames the history still holds.
+	 * @return the number of frames added up
+	 */
+	private int sum() {
+		for (int i = 0; i < sums.length; i++)
+			sums[i] = 0;
+		maxPaintNanos = 0;
+		frames = 0;
+		FrameStatsHistory history = screen.getStatsHistory();
+		if (history == null)
+			return 0;
+
+		long count = history.getFrameCount();
+		for (long f = Math.max(count - history.getCapacity(), 0); f < count; f++) {
+			if (!history.get(f, frame))
+				continue;
+
+			sums[PAINT_NANOS] += frame.paintNanos;
+			sums[BLIT_NANOS] += frame.blitNanos;
+			sums[DIRTY_CELLS] += frame.dirtyCells;
+			sums[DRAWN_CELLS] += frame.drawnCells;
+			sums[QUADS] += frame.quads;
+			sums[DRAW_CALLS] += frame.drawCalls;
+			sums[WRITE_CALLS] += frame.writeCalls;
+			if (frame.frameBufferCreated)
+				sums[FRAME_BUFFERS_CREATED]++;
+			maxPaintNanos = Math.max(maxPaintNanos, frame.paintNanos);
+			frames++;
+		}
+		return frames;
+	}
+}
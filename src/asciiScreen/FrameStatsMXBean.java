@@ -0,0 +1,34 @@
+package asciiscreen;
+
+/**
+ * The frame stats of a screen as seen through JMX, see {@link FrameStatsJmx}.
+ * The averages and maxima are over the frames the screen's {@link FrameStatsHistory} still holds.
+ * Stats are turned on and off on the screen, which isn't safe to do from the JMX threads.
+ */
+public interface FrameStatsMXBean {
+	public boolean isStatsEnabled();
+
+	public long getFrameCount();
+
+	public double getAveragePaintNanos();
+
+	public long getMaxPaintNanos();
+
+	public double getAverageBlitNanos();
+
+	public double getAverageDirtyCells();
+
+	public double getAverageDrawnCells();
+
+	public double getAverageQuads();
+
+	public double getAverageDrawCalls();
+
+	public double getAverageWriteCalls();
+
+	/**
+	 * Gets the number of frames in the history that had to create the frame buffer.
+	 * @return
+	 */
+	public int getFrameBuffersCreated();
+}
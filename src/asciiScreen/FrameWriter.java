@@ -0,0 +1,152 @@
+package asciiscreen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes the cells of a screen to a channel as a stream of frames, e.g. for recording a session and replaying it
+ * with a {@link FrameReader}. A snapshot frame holds every cell, a delta frame only the cells that changed.
+ * <p>
+ * The stream starts with the magic number "ASCF" and the width and height in cells as big-endian ints.
+ * Every frame starts with its type (1 for a snapshot, 2 for a delta) as a byte and the length of the rest as an int.
+ * Cells are stored as runs of equal cells: the length of the run and the glyph as unsigned varints,
+ * followed by the packed foreground and background colors as ints. A snapshot is the runs of all cells row by row.
+ * A delta is a sequence of spans of consecutive changed cells, each span given by the number of cells skipped
+ * since the end of the previous span and the number of cells in it as unsigned varints, followed by its runs.
+ * <p>
+ * Each frame is assembled in memory and then written in one go, so a frame is never written halfway unless the channel fails.
+ */
+public class FrameWriter implements FrameSink {
+	static final int MAGIC = 0x41534346; // "ASCF"
+	static final int HEADER_BYTES = 12;
+	static final int FRAME_HEADER_BYTES = 5;
+	static final byte SNAPSHOT = 1;
+	static final byte DELTA = 2;
+	// the most a varint takes, the most a run of a single cell takes and the most a cell takes in any frame,
+	// which is a delta where every other cell changed: a span of its own and a run
+	static final int MAX_VARINT_BYTES = 5;
+	static final int MAX_RUN_BYTES = MAX_VARINT_BYTES * 2 + 8;
+	static final int MAX_CELL_BYTES = MAX_VARINT_BYTES * 2 + MAX_RUN_BYTES;
+
+	private final WritableByteChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocate(4096);
+	private int width;
+	private int height;
+	// where the frame being assembled starts in the buffer, after the stream's header for the first frame
+	private int frameStart;
+
+	/**
+	 * Creates a writer, the stream's header is written along with the first frame.
+	 * @param channel the channel to write to, it is not closed by the writer
+	 */
+	public FrameWriter(WritableByteChannel channel) {
+		if (channel == null)
+			throw new NullPointerException("channel must not be null." );
+
+		this.channel = channel;
+	}
+
+	/**
+	 * Writes a frame that holds every cell.
+	 * @param cells
+	 * @throws IOException if the channel fails
+	 */
+	@Override
+	public void writeSnapshot(CellBuffer cells) throws IOException {
+		begin(cells, SNAPSHOT);
+		writeRuns(cells, 0, width * height);
+		end();
+	}
+
+	/**
+	 * Writes a frame that holds the dirty cells, the dirty cells are left as they are.
+	 * A delta without any dirty cells is still written, so a replay can keep time with the recording.
+	 * @param cells
+	 * @param dirty the cells that changed since the last frame
+	 * @throws IOException if the channel fails
+	 */
+	@Override
+	public void writeDelta(CellBuffer cells, DirtyCells dirty) throws IOException {
+		begin(cells, DELTA);
+		int end = 0;
+		for (int y = dirty.nextDirtyRow(0); y >= 0; y = dirty.nextDirtyRow(y + 1)) {
+			for (int x = dirty.nextDirty(0, y); x >= 0; x = dirty.nextDirty(x, y)) {
+				int next = dirty.nextClean(x, y);
+				int start = y * width + x;
+				ensure(MAX_VARINT_BYTES * 2);
+				putVarint(start - end);
+				putVarint(next - x);
+				writeRuns(cells, start, next - x);
+				end = start + next - x;
+				x = next;
+			}
+		}
+		end();
+	}
+
+	private void begin(CellBuffer cells, byte type) {
+		buffer.clear();
+		if (width == 0) {
+			width = cells.getWidth();
+			height = cells.getHeight();
+			buffer.putInt(MAGIC).putInt(width).putInt(height);
+		} else if (cells.getWidth() != width || cells.getHeight() != height) {
+			throw new IllegalArgumentException("cells " + cells.getWidth() + "x" + cells.getHeight() + " must be " + width + "x" + height + "." );
+		}
+		frameStart = buffer.position();
+		buffer.put(type).putInt(0);
+	}
+
+	private void end() throws IOException {
+		// the length doesn't count the frame's header
+		buffer.putInt(frameStart + 1, buffer.position() - frameStart - FRAME_HEADER_BYTES);
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	/**
+	 * Writes the cells from the specified index on as runs of equal cells.
+	 */
+	private void writeRuns(CellBuffer cells, int index, int count) {
+		int end = index + count;
+		while (index < end) {
+			int x = index % width;
+			int y = index / width;
+			int glyph = cells.getGlyph(x, y);
+			int foreground = cells.getForeground(x, y);
+			int background = cells.getBackground(x, y);
+			int run = 1;
+			for (int i = index + 1; i < end; i++, run++) {
+				int rx = i % width;
+				int ry = i / width;
+				if (cells.getGlyph(rx, ry) != glyph || cells.getForeground(rx, ry) != foreground || cells.getBackground(rx, ry) != background)
+					break;
+			}
+			ensure(MAX_RUN_BYTES);
+			putVarint(run);
+			putVarint(glyph);
+			buffer.putInt(foreground).putInt(background);
+			index += run;
+		}
+	}
+
+	private void putVarint(int value) {
+		while ((value & ~0x7f) != 0) {
+			buffer.put((byte)(value & 0x7f | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte)value);
+	}
+
+	private void ensure(int bytes) {
+		if (buffer.remaining() >= bytes)
+			return;
+
+		ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+		buffer.flip();
+		grown.put(buffer);
+		buffer = grown;
+	}
+}
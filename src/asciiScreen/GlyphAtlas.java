@@ -0,0 +1,215 @@
+package asciiscreen;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The glyph texture of a font, shared by every {@link AsciiScreen} using that font.
+ * Atlases are reference counted: {@link #obtain(AsciiFont)} loads one on first use and
+ * {@link #release()} disposes it once the last screen using it is done. Both are meant to be called on the render thread.
+ * <p>
+ * The font image is turned into white-alpha pixels once and the result is cached as raw RGBA8888
+ * in local storage, so later starts skip decoding and converting it.
+ * The cache holds the length and CRC32 of the image it was made from and is converted anew when either differs.
+ * <p>
+ * Fonts share an atlas when they cut the same glyphs from the same image, however they map characters to them.
+ */
+class GlyphAtlas {
+	private static final int CACHE_MAGIC = 0x41534332; // "ASC2"
+	// magic, width, height, the source's length and its CRC32
+	private static final int CACHE_HEADER = 24;
+	private static final String CACHE_DIRECTORY = ".asciiscreen/";
+
+	// keyed by the image and where the glyphs lie in it, see key
+	private static final Map<String, GlyphAtlas> atlases = new HashMap<String, GlyphAtlas>();
+
+	private final AsciiFont font;
+	private final String key;
+	private final Texture texture;
+	private final TextureRegion[] glyphs;
+	// glyphs without a single visible pixel, e.g. space, which needn't be drawn
+	private final boolean[] blankGlyphs;
+	private int references;
+
+	/**
+	 * Gets the atlas for the font, loading it if no screen uses it yet.
+	 * @param font
+	 * @return
+	 */
+	static GlyphAtlas obtain(AsciiFont font) {
+		String key = key(font);
+		GlyphAtlas atlas = atlases.get(key);
+		if (atlas == null) {
+			atlas = new GlyphAtlas(font, key);
+			atlases.put(key, atlas);
+		}
+		atlas.references++;
+		return atlas;
+	}
+
+	/**
+	 * Describes what the atlas is cut from: the image's path and the metrics of the glyphs.
+	 */
+	private static String key(AsciiFont font) {
+		return font.getPath() + ':' + font.getCharWidth() + 'x' + font.getCharHeight() + ':' + font.getColumns() + ':' + font.getGlyphCount()
+			+ ':' + font.getGlyphX(0) + ',' + font.getGlyphY(0);
+	}
+
+	private GlyphAtlas(AsciiFont font, String key) {
+		this.font = font;
+		this.key = key;
+
+		Pixmap pixmap = loadPixmap(font.getPath());
+		texture = new Texture(pixmap);
+		texture.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+
+		glyphs = new TextureRegion[font.getGlyphCount()];
+		blankGlyphs = new boolean[glyphs.length];
+		for (int i = 0; i < glyphs.length; i++) {
+			glyphs[i] = new TextureRegion(texture, font.getGlyphX(i), font.getGlyphY(i), font.getCharWidth(), font.getCharHeight());
+			blankGlyphs[i] = isBlank(pixmap, font.getGlyphX(i), font.getGlyphY(i), font.getCharWidth(), font.getCharHeight());
+		}
+		pixmap.dispose();
+	}
+
+	private static boolean isBlank(Pixmap pixmap, int x, int y, int width, int height) {
+		ByteBuffer pixels = pixmap.getPixels();
+		for (int yo = y; yo < y + height; yo++) {
+			for (int xo = x; xo < x + width; xo++) {
+				if (pixels.get((yo * pixmap.getWidth() + xo) * 4 + 3) != 0)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gives up one reference, the texture gets disposed when the last one is gone.
+	 */
+	void release() {
+		if (references == 0)
+			throw new IllegalStateException("atlas " + font.getPath() + " was already released." );
+
+		if (--references == 0) {
+			atlases.remove(key);
+			texture.dispose();
+		}
+	}
+
+	Texture getTexture() {
+		return texture;
+	}
+
+	TextureRegion[] getGlyphs() {
+		return glyphs;
+	}
+
+	/**
+	 * Gets which glyphs have no visible pixel at all.
+	 * @return
+	 */
+	boolean[] getBlankGlyphs() {
+		return blankGlyphs;
+	}
+
+	AsciiFont getFont() {
+		return font;
+	}
+
+	private static Pixmap loadPixmap(String path) {
+		FileHandle source = Gdx.files.internal(path);
+		FileHandle cache = null;
+		if (Gdx.files.isLocalStorageAvailable())
+			cache = Gdx.files.local(CACHE_DIRECTORY + path.replace('/', '_') + ".rgba");
+
+		// reading the encoded image for its checksum costs little next to decoding it, which it is kept for if need be
+		byte[] encoded = source.readBytes();
+		CRC32 crc = new CRC32();
+		crc.update(encoded, 0, encoded.length);
+		int sourceCrc = (int)crc.getValue();
+
+		if (cache != null && cache.exists()) {
+			try {
+				Pixmap pixmap = readCache(cache, encoded.length, sourceCrc);
+				if (pixmap != null)
+					return pixmap;
+			} catch (GdxRuntimeException e) {
+				// fall back to converting the image again
+			}
+		}
+
+		Pixmap pixmap = new Pixmap(encoded, 0, encoded.length);
+		Pixmap pixmapDst = new Pixmap(pixmap.getWidth(), pixmap.getHeight(), Pixmap.Format.RGBA8888);
+		// transfer the image into white-alpha
+		ByteBuffer buffer = pixmap.getPixels();
+		byte[] alpha = new byte[buffer.limit()];
+		buffer.rewind();
+		buffer.get(alpha);
+		buffer.rewind();
+		pixmap.dispose();
+
+		byte[] rgba = new byte[alpha.length * 4];
+		for (int i = 0, j = 0; i < alpha.length; i++, j += 4) {
+			byte a = alpha[i];
+			if (a != 0) {
+				rgba[j] = (byte)127;
+				rgba[j + 1] = (byte)127;
+				rgba[j + 2] = (byte)127;
+				rgba[j + 3] = a;
+			}
+		}
+		ByteBuffer bufferDst = pixmapDst.getPixels();
+		bufferDst.rewind();
+		bufferDst.put(rgba);
+		bufferDst.rewind();
+
+		if (cache != null) {
+			try {
+				writeCache(cache, pixmapDst.getWidth(), pixmapDst.getHeight(), encoded.length, sourceCrc, rgba);
+			} catch (GdxRuntimeException e) {
+				// caching is only an optimization
+			}
+		}
+		return pixmapDst;
+	}
+
+	/**
+	 * Reads a converted atlas, as long as it was made from a source of the same length and CRC32.
+	 * @return the pixmap or null if the cache is stale
+	 */
+	private static Pixmap readCache(FileHandle cache, long sourceLength, int sourceCrc) {
+		byte[] bytes = cache.readBytes();
+		if (bytes.length < CACHE_HEADER)
+			return null;
+
+		ByteBuffer header = ByteBuffer.wrap(bytes);
+		int width = header.getInt(4);
+		int height = header.getInt(8);
+		if (header.getInt(0) != CACHE_MAGIC || header.getLong(12) != sourceLength || header.getInt(20) != sourceCrc
+			|| width < 1 || height < 1 || bytes.length != CACHE_HEADER + (long)width * height * 4)
+			return null;
+
+		Pixmap pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+		ByteBuffer pixels = pixmap.getPixels();
+		pixels.rewind();
+		pixels.put(bytes, CACHE_HEADER, width * height * 4);
+		pixels.rewind();
+		return pixmap;
+	}
+
+	private static void writeCache(FileHandle cache, int width, int height, long sourceLength, int sourceCrc, byte[] rgba) {
+		byte[] bytes = new byte[CACHE_HEADER + rgba.length];
+		ByteBuffer header = ByteBuffer.wrap(bytes);
+		header.putInt(CACHE_MAGIC).putInt(width).putInt(height).putLong(sourceLength).putInt(sourceCrc);
+		System.arraycopy(rgba, 0, bytes, CACHE_HEADER, rgba.length);
+		cache.writeBytes(bytes, false);
+	}
+}
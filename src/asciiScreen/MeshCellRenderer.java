@@ -0,0 +1,253 @@
+package asciiscreen;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import java.nio.ByteBuffer;
+
+/**
+ * Draws the whole screen with a single quad.
+ * The cells are kept in a data texture with three bands of rows: glyph index, foreground and background.
+ * Only the rows holding dirty cells are uploaded, the fragment shader then looks up the glyph in the atlas
+ * and mixes the colors the same way {@link SpriteBatchCellRenderer}'s two blended quads do.
+ * Backgrounds that aren't opaque are drawn as if the frame buffer was cleared underneath them.
+ * The background is rounded to the frame buffer's 8 bits before the glyph is mixed in, as the sprite batch's first quad is,
+ * so both renderers write the same pixels.
+ */
+class MeshCellRenderer implements CellRenderer {
+	private static final String VERTEX_SHADER = ""
+		+ "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+		+ "attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+		+ "uniform mat4 u_projTrans;\n"
+		+ "varying vec2 v_cell;\n"
+		+ "void main() {\n"
+		+ "	v_cell = " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+		+ "	gl_Position = u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+		+ "}\n";
+
+	private static final String FRAGMENT_SHADER = ""
+		+ "#ifdef GL_ES\n"
+		+ "#ifdef GL_FRAGMENT_PRECISION_HIGH\n"
+		+ "precision highp float;\n"
+		+ "#else\n"
+		+ "precision mediump float;\n"
+		+ "#endif\n"
+		+ "#endif\n"
+		+ "varying vec2 v_cell;\n"
+		+ "uniform sampler2D u_cells;\n"
+		+ "uniform sampler2D u_glyphTable;\n"
+		+ "uniform sampler2D u_atlas;\n"
+		+ "uniform vec2 u_gridSize;\n"
+		+ "uniform vec2 u_tableSize;\n"
+		+ "uniform vec2 u_charSize;\n"
+		+ "uniform vec2 u_atlasSize;\n"
+		+ "uniform vec4 u_backgroundTint;\n"
+		+ "uniform float u_backgroundLevels;\n"
+		+ "vec4 cellData(vec2 cell, float band) {\n"
+		+ "	return texture2D(u_cells, vec2((cell.x + 0.5) / u_gridSize.x, (band * u_gridSize.y + cell.y + 0.5) / (3.0 * u_gridSize.y)));\n"
+		+ "}\n"
+		+ "float decode(vec2 bytes) {\n"
+		+ "	bytes = floor(bytes * 255.0 + 0.5);\n"
+		+ "	return bytes.x + bytes.y * 256.0;\n"
+		+ "}\n"
+		+ "void main() {\n"
+		+ "	vec2 cell = floor(v_cell);\n"
+		+ "	vec2 inCell = floor((v_cell - cell) * u_charSize);\n"
+		+ "	float glyph = decode(cellData(cell, 0.0).rg);\n"
+		+ "	vec4 fg = cellData(cell, 1.0);\n"
+		+ "	vec4 bg = cellData(cell, 2.0) * u_backgroundTint;\n"
+		+ "	vec2 tableCell = vec2(mod(glyph, u_tableSize.x), floor(glyph / u_tableSize.x));\n"
+		+ "	vec4 origin = texture2D(u_glyphTable, (tableCell + 0.5) / u_tableSize);\n"
+		+ "	vec2 atlasPixel = vec2(decode(origin.rg), decode(origin.ba)) + inCell + 0.5;\n"
+		+ "	vec4 g = texture2D(u_atlas, atlasPixel / u_atlasSize) * fg;\n"
+		+ "	vec4 b = vec4(bg.rgb * bg.a, bg.a * bg.a);\n"
+		+ "	if (u_backgroundLevels > 0.0)\n"
+		+ "		b = floor(b * u_backgroundLevels + 0.5) / u_backgroundLevels;\n"
+		+ "	gl_FragColor = vec4(g.rgb * g.a + b.rgb * (1.0 - g.a), g.a * g.a + b.a * (1.0 - g.a));\n"
+		+ "}\n";
+
+	private static final int TABLE_WIDTH = 256;
+
+	private final Texture atlas;
+	private final Color backgroundTint;
+	private final int charWidth;
+	private final int charHeight;
+	private final int tableWidth;
+	private final int tableHeight;
+	private final Texture glyphTable;
+	private final ShaderProgram shader;
+	private boolean floatFrameBuffer;
+
+	private Mesh mesh;
+	private Pixmap cellData;
+	private Texture cellTexture;
+
+	/**
+	 * @param glyphs         the glyphs, all regions of the same atlas texture
+	 * @param backgroundTint the color of the texture the sprite batch renderer draws backgrounds with
+	 */
+	MeshCellRenderer(TextureRegion[] glyphs, Color backgroundTint, int charWidth, int charHeight) {
+		this.atlas = glyphs[0].getTexture();
+		// the texture holds the tint in 8 bits, the shader has to multiply by the very same values
+		this.backgroundTint = new Color(Color.rgba8888(backgroundTint));
+		this.charWidth = charWidth;
+		this.charHeight = charHeight;
+
+		shader = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+		if (!shader.isCompiled())
+			throw new GdxRuntimeException("Couldn't compile cell shader: " + shader.getLog());
+
+		// where every glyph starts in the atlas, 16 bits for each coordinate
+		tableWidth = Math.min(glyphs.length, TABLE_WIDTH);
+		tableHeight = (glyphs.length + tableWidth - 1) / tableWidth;
+		Pixmap table = new Pixmap(tableWidth, tableHeight, Pixmap.Format.RGBA8888);
+		ByteBuffer pixels = table.getPixels();
+		for (int i = 0; i < glyphs.length; i++) {
+			int x = glyphs[i].getRegionX();
+			int y = glyphs[i].getRegionY();
+			pixels.put(i * 4, (byte)x);
+			pixels.put(i * 4 + 1, (byte)(x >>> 8));
+			pixels.put(i * 4 + 2, (byte)y);
+			pixels.put(i * 4 + 3, (byte)(y >>> 8));
+		}
+		glyphTable = new Texture(table);
+		glyphTable.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+		table.dispose();
+	}
+
+	@Override
+	public void paint(CellBuffer cells, DirtyCells dirty, Matrix4 projection) {
+		int width = cells.getWidth();
+		int height = cells.getHeight();
+		if (cellData == null || cellData.getWidth() != width || cellData.getHeight() != height * 3) {
+			createGrid(width, height);
+			dirty.markAll();
+		}
+
+		int firstRow = dirty.nextDirtyRow(0);
+		int lastRow = firstRow;
+		ByteBuffer pixels = cellData.getPixels();
+		for (int y = firstRow; y >= 0; y = dirty.nextDirtyRow(y + 1)) {
+			for (int x = dirty.nextDirty(0, y); x >= 0; x = dirty.nextDirty(x + 1, y)) {
+				int i = (y * width + x) * 4;
+				int c = cells.getGlyph(x, y);
+				pixels.put(i, (byte)c);
+				pixels.put(i + 1, (byte)(c >>> 8));
+				putRgba8888(pixels, i + width * height * 4, cells.getForeground(x, y));
+				putRgba8888(pixels, i + width * height * 8, cells.getBackground(x, y));
+			}
+			dirty.clearRow(y);
+			lastRow = y;
+		}
+
+		cellTexture.bind(0);
+		Gdx.gl.glPixelStorei(GL20.GL_UNPACK_ALIGNMENT, 1);
+		for (int band = 0; band < 3; band++) {
+			int row = band * height + firstRow;
+			pixels.position(row * width * 4);
+			Gdx.gl.glTexSubImage2D(GL20.GL_TEXTURE_2D, 0, 0, row, width, lastRow - firstRow + 1, GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE, pixels);
+		}
+		pixels.position(0);
+		glyphTable.bind(1);
+		atlas.bind(2);
+		Gdx.gl.glActiveTexture(GL20.GL_TEXTURE0);
+
+		// the shader writes every pixel as it is, whoever draws next gets blending back the way it was
+		boolean blending = Gdx.gl.glIsEnabled(GL20.GL_BLEND);
+		if (blending)
+			Gdx.gl.glDisable(GL20.GL_BLEND);
+		shader.bind();
+		shader.setUniformMatrix("u_projTrans", projection);
+		shader.setUniformi("u_cells", 0);
+		shader.setUniformi("u_glyphTable", 1);
+		shader.setUniformi("u_atlas", 2);
+		shader.setUniformf("u_gridSize", width, height);
+		shader.setUniformf("u_tableSize", tableWidth, tableHeight);
+		shader.setUniformf("u_charSize", charWidth, charHeight);
+		shader.setUniformf("u_atlasSize", atlas.getWidth(), atlas.getHeight());
+		shader.setUniformf("u_backgroundTint", backgroundTint);
+		shader.setUniformf("u_backgroundLevels", floatFrameBuffer ? 0 : 255);
+		mesh.render(shader, GL20.GL_TRIANGLES);
+		if (blending)
+			Gdx.gl.glEnable(GL20.GL_BLEND);
+	}
+
+	/**
+	 * Sets whether the frame buffer drawn into holds float pixels, which keep the background unrounded.
+	 * @param floatFrameBuffer
+	 */
+	void setFloatFrameBuffer(boolean floatFrameBuffer) {
+		this.floatFrameBuffer = floatFrameBuffer;
+	}
+
+	/**
+	 * The shader draws every cell of the grid, dirty or not.
+	 */
+	@Override
+	public int getDrawnCells() {
+		return cellData == null ? 0 : cellData.getWidth() * cellData.getHeight() / 3;
+	}
+
+	@Override
+	public int getQuads() {
+		return 1;
+	}
+
+	@Override
+	public int getDrawCalls() {
+		return 1;
+	}
+
+	private static void putRgba8888(ByteBuffer pixels, int i, int rgba8888) {
+		pixels.put(i, (byte)(rgba8888 >>> 24));
+		pixels.put(i + 1, (byte)(rgba8888 >>> 16));
+		pixels.put(i + 2, (byte)(rgba8888 >>> 8));
+		pixels.put(i + 3, (byte)rgba8888);
+	}
+
+	private void createGrid(int width, int height) {
+		disposeGrid();
+
+		cellData = new Pixmap(width, height * 3, Pixmap.Format.RGBA8888);
+		cellTexture = new Texture(cellData);
+		cellTexture.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+
+		// one quad over the whole screen, texture coordinates count cells from the upper left corner
+		float w = width * charWidth;
+		float h = height * charHeight;
+		mesh = new Mesh(true, 4, 6,
+			new VertexAttribute(VertexAttributes.Usage.Position, 2, ShaderProgram.POSITION_ATTRIBUTE),
+			new VertexAttribute(VertexAttributes.Usage.TextureCoordinates, 2, ShaderProgram.TEXCOORD_ATTRIBUTE + "0"));
+		mesh.setVertices(new float[] {
+			0, 0, 0, height,
+			w, 0, width, height,
+			w, h, width, 0,
+			0, h, 0, 0 });
+		mesh.setIndices(new short[] { 0, 1, 2, 2, 3, 0 });
+	}
+
+	private void disposeGrid() {
+		if (mesh != null)
+			mesh.dispose();
+		if (cellTexture != null)
+			cellTexture.dispose();
+		if (cellData != null)
+			cellData.dispose();
+	}
+
+	@Override
+	public void dispose() {
+		disposeGrid();
+		glyphTable.dispose();
+		shader.dispose();
+	}
+}
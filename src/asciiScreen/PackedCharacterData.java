@@ -0,0 +1,10 @@
+package asciiscreen;
+
+/**
+ * The contents of a cell as stored, a glyph index and packed RGBA8888 colors.
+ */
+public class PackedCharacterData {
+	public int glyph;
+	public int foregroundColor;
+	public int backgroundColor;
+}
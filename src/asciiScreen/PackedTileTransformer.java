@@ -0,0 +1,8 @@
+package asciiscreen;
+
+/**
+ * A {@link TileTransformer} working on the packed cell values, so no {@link com.badlogic.gdx.graphics.Color} is involved.
+ */
+public interface PackedTileTransformer {
+	public void transformTile(int x, int y, PackedCharacterData data);
+}
@@ -0,0 +1,264 @@
+package asciiscreen;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
+import javax.imageio.ImageIO;
+
+/**
+ * Draws cells into an ARGB image in plain Java, without a GL context, e.g. for streaming frames from a server
+ * or comparing the output of a test against a known good image.
+ * It draws what {@link AsciiScreen} draws into its frame buffer: the background tinted by the light gray
+ * background texture, then the glyph tinted by the foreground color and blended on top.
+ * Like the screen it only draws the dirty cells, larger updates are split into bands of rows that are drawn in parallel.
+ * A headless screen paints through a rasterizer, see {@link AsciiScreen#AsciiScreen(CellBuffer, SoftwareRasterizer)}.
+ */
+public class SoftwareRasterizer {
+	// paint doesn't hand fewer cells than this to another thread
+	private static final int MIN_BAND_CELLS = 1024;
+	// the gray of the screen's background texture and the glyph atlas, see AsciiScreen.white and GlyphAtlas
+	private static final int BACKGROUND_GRAY = 191;
+	private static final int GLYPH_GRAY = 127;
+
+	private final AsciiFont font;
+	private final int charWidth;
+	private final int charHeight;
+	// the coverage of every glyph's pixels, charWidth * charHeight bytes per glyph
+	private final byte[] coverage;
+	private int width;
+	private int height;
+	private BufferedImage image;
+	private int[] pixels;
+
+	/**
+	 * Creates a rasterizer for a screen of the specified size in characters.
+	 * @param font         the font to draw
+	 * @param atlas        the font's image, its alpha channel or, for gray images, its gray is a glyph pixel's coverage
+	 * @param widthInCharacters
+	 * @param heightInCharacters
+	 */
+	public SoftwareRasterizer(AsciiFont font, BufferedImage atlas, int widthInCharacters, int heightInCharacters) {
+		if (font == null)
+			throw new NullPointerException("font must not be null." );
+
+		if (atlas == null)
+			throw new NullPointerException("atlas must not be null." );
+
+		if (widthInCharacters < 1)
+			throw new IllegalArgumentException("widthInCharacters " + widthInCharacters + " must be greater than 0." );
+
+		if (heightInCharacters < 1)
+			throw new IllegalArgumentException("heightInCharacters " + heightInCharacters + " must be greater than 0." );
+
+		this.font = font;
+		this.charWidth = font.getCharWidth();
+		this.charHeight = font.getCharHeight();
+		this.width = widthInCharacters;
+		this.height = heightInCharacters;
+
+		Raster raster = atlas.getAlphaRaster();
+		if (raster == null)
+			raster = atlas.getRaster();
+		coverage = new byte[font.getGlyphCount() * charWidth * charHeight];
+		int[] row = new int[charWidth];
+		for (int glyph = 0, i = 0; glyph < font.getGlyphCount(); glyph++) {
+			for (int y = 0; y < charHeight; y++, i += charWidth) {
+				raster.getSamples(font.getGlyphX(glyph), font.getGlyphY(glyph) + y, charWidth, 1, 0, row);
+				for (int x = 0; x < charWidth; x++)
+					coverage[i + x] = (byte)row[x];
+			}
+		}
+
+		createImage();
+	}
+
+	/**
+	 * Creates a rasterizer, reading the font's image from a stream, e.g. the same png the screen loads.
+	 * @param font
+	 * @param atlas the stream to read the font's image from, it is not closed
+	 * @param widthInCharacters
+	 * @param heightInCharacters
+	 * @return
+	 * @throws IOException if the image can't be read
+	 */
+	public static SoftwareRasterizer load(AsciiFont font, InputStream atlas, int widthInCharacters, int heightInCharacters) throws IOException {
+		BufferedImage image = ImageIO.read(atlas);
+		if (image == null)
+			throw new IOException("atlas for " + font.getPath() + " is not an image format ImageIO can read." );
+
+		return new SoftwareRasterizer(font, image, widthInCharacters, heightInCharacters);
+	}
+
+	public AsciiFont getFont() {
+		return font;
+	}
+
+	/**
+	 * Changes the size in characters. The image is made anew, transparent black, so every cell has to be drawn again.
+	 * @param widthInCharacters
+	 * @param heightInCharacters
+	 */
+	public void resize(int widthInCharacters, int heightInCharacters) {
+		if (widthInCharacters < 1)
+			throw new IllegalArgumentException("widthInCharacters " + widthInCharacters + " must be greater than 0." );
+
+		if (heightInCharacters < 1)
+			throw new IllegalArgumentException("heightInCharacters " + heightInCharacters + " must be greater than 0." );
+
+		this.width = widthInCharacters;
+		this.height = heightInCharacters;
+		createImage();
+	}
+
+	private void createImage() {
+		image = new BufferedImage(width * charWidth, height * charHeight, BufferedImage.TYPE_INT_ARGB);
+		pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+	}
+
+	public int getWidthInCharacters() {
+		return width;
+	}
+
+	public int getHeightInCharacters() {
+		return height;
+	}
+
+	/**
+	 * Gets the width of the image in pixels.
+	 * @return
+	 */
+	public int getWidth() {
+		return width * charWidth;
+	}
+
+	/**
+	 * Gets the height of the image in pixels.
+	 * @return
+	 */
+	public int getHeight() {
+		return height * charHeight;
+	}
+
+	/**
+	 * Gets the pixels drawn so far as ARGB, row by row from the top. The array is the image's own, not a copy,
+	 * until the next {@link #resize(int, int)}.
+	 * @return
+	 */
+	public int[] getPixels() {
+		return pixels;
+	}
+
+	/**
+	 * Gets the image the pixels belong to, e.g. for {@link ImageIO}.
+	 * @return
+	 */
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	/**
+	 * Writes the image drawn so far as a png.
+	 * @param out the stream to write to, it is not closed
+	 * @throws IOException
+	 */
+	public void writePng(OutputStream out) throws IOException {
+		ImageIO.write(image, "png", out);
+	}
+
+	/**
+	 * Draws the dirty cells and marks them clean.
+	 * Nothing else may change the cells or the dirty cells while this runs.
+	 * @param cells the cells to draw, the same size as the rasterizer
+	 * @param dirty the cells that changed since they were last drawn
+	 */
+	public void paint(final CellBuffer cells, final DirtyCells dirty) {
+		if (cells.getWidth() != width || cells.getHeight() != height)
+			throw new IllegalArgumentException("cells " + cells.getWidth() + "x" + cells.getHeight() + " must be " + width + "x" + height + "." );
+
+		if (dirty.isEmpty())
+			return;
+
+		int bandHeight = Math.max(1, MIN_BAND_CELLS / width);
+		if (height <= bandHeight) {
+			paintRows(cells, dirty, 0, height);
+		} else {
+			// the bands only read the dirty cells, clearing them concurrently would race on the shared row bits
+			ForkJoinPool.commonPool().invoke(new TileBands(new TileBands.Rows() {
+				@Override
+				public void transform(int startY, int endY) {
+					paintRows(cells, dirty, startY, endY);
+				}
+			}, 0, height, bandHeight));
+		}
+		dirty.clear();
+	}
+
+	private void paintRows(CellBuffer cells, DirtyCells dirty, int startY, int endY) {
+		int glyphCount = font.getGlyphCount();
+		for (int y = dirty.nextDirtyRow(startY); y >= 0 && y < endY; y = dirty.nextDirtyRow(y + 1)) {
+			for (int x = dirty.nextDirty(0, y); x >= 0; x = dirty.nextDirty(x + 1, y)) {
+				int glyph = cells.getGlyph(x, y);
+				if (glyph < 0 || glyph >= glyphCount)
+					throw new IllegalArgumentException("glyph " + glyph + " must be within range [0," + glyphCount + ")." );
+
+				paintCell(x, y, glyph, cells.getForeground(x, y), cells.getBackground(x, y));
+			}
+		}
+	}
+
+	/**
+	 * Draws a cell the way the sprite batch does: each quad's color is the texture's times the tint,
+	 * blended with source alpha over what was drawn before.
+	 */
+	private void paintCell(int x, int y, int glyph, int foreground, int background) {
+		int bgR = scale(background >>> 24, BACKGROUND_GRAY);
+		int bgG = scale(background >>> 16 & 0xff, BACKGROUND_GRAY);
+		int bgB = scale(background >>> 8 & 0xff, BACKGROUND_GRAY);
+		int bgA = background & 0xff;
+		int fgR = scale(foreground >>> 24, GLYPH_GRAY);
+		int fgG = scale(foreground >>> 16 & 0xff, GLYPH_GRAY);
+		int fgB = scale(foreground >>> 8 & 0xff, GLYPH_GRAY);
+		int fgA = foreground & 0xff;
+		int opaqueBackground = bgA << 24 | bgR << 16 | bgG << 8 | bgB;
+
+		int stride = width * charWidth;
+		int i = glyph * charWidth * charHeight;
+		for (int py = 0; py < charHeight; py++) {
+			int p = (y * charHeight + py) * stride + x * charWidth;
+			for (int px = 0; px < charWidth; px++, p++, i++) {
+				int pixel = bgA == 255 ? opaqueBackground : blend(pixels[p], bgR, bgG, bgB, bgA);
+				int a = scale(coverage[i] & 0xff, fgA);
+				if (a != 0)
+					pixel = blend(pixel, fgR, fgG, fgB, a);
+				pixels[p] = pixel;
+			}
+		}
+	}
+
+	/**
+	 * Blends a color over an ARGB pixel with source alpha, alpha included.
+	 */
+	private static int blend(int pixel, int r, int g, int b, int a) {
+		int inverse = 255 - a;
+		return over(a, pixel >>> 24, a, inverse) << 24
+			| over(r, pixel >>> 16 & 0xff, a, inverse) << 16
+			| over(g, pixel >>> 8 & 0xff, a, inverse) << 8
+			| over(b, pixel & 0xff, a, inverse);
+	}
+
+	private static int over(int source, int destination, int a, int inverse) {
+		return Math.min(scale(source, a) + scale(destination, inverse), 255);
+	}
+
+	/**
+	 * Multiplies two 8-bit channels as if they were fractions of 255, rounded.
+	 */
+	private static int scale(int channel, int factor) {
+		int product = channel * factor + 128;
+		return (product + (product >>> 8)) >>> 8;
+	}
+}
@@ -0,0 +1,170 @@
+package asciiscreen;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Draws the dirty cells through a {@link SpriteBatch} in two passes, first the backgrounds and then the glyphs,
+ * so the batch only switches textures once.
+ * Backgrounds are merged into as few quads as possible: dirty cells next to each other with the same background
+ * make one stretched quad, and the same run on consecutive rows grows into a rectangle.
+ * Blank glyphs, e.g. space, and invisible ones aren't drawn at all.
+ */
+class SpriteBatchCellRenderer implements CellRenderer {
+	private final SpriteBatch batch;
+	private final Texture backgroundTexture;
+	private final TextureRegion[] glyphs;
+	private final boolean[] blankGlyphs;
+	private final int charWidth;
+	private final int charHeight;
+	// scratch color for converting packed cell colors
+	private final Color paintColor = new Color();
+	// background rectangles that may still grow downward, four ints each: x, end x, top row, color
+	private IntArray openRuns = new IntArray();
+	private IntArray nextRuns = new IntArray();
+	// what the last paint drew
+	private int drawnCells;
+	private int quads;
+	private int drawCalls;
+
+	/**
+	 * @param blankGlyphs which glyphs have no visible pixel
+	 */
+	SpriteBatchCellRenderer(SpriteBatch batch, Texture backgroundTexture, TextureRegion[] glyphs, boolean[] blankGlyphs, int charWidth, int charHeight) {
+		this.batch = batch;
+		this.backgroundTexture = backgroundTexture;
+		this.glyphs = glyphs;
+		this.blankGlyphs = blankGlyphs;
+		this.charWidth = charWidth;
+		this.charHeight = charHeight;
+	}
+
+	@Override
+	public void paint(CellBuffer cells, DirtyCells dirty, Matrix4 projection) {
+		int heightInCharacters = cells.getHeight();
+		drawnCells = 0;
+		quads = 0;
+
+		batch.setProjectionMatrix(projection);
+		batch.begin();
+		paintBackgrounds(cells, dirty);
+
+		int color = 0;
+		Color.rgba8888ToColor(paintColor, color);
+		batch.setColor(paintColor);
+		for (int y = dirty.nextDirtyRow(0); y >= 0; y = dirty.nextDirtyRow(y + 1)) {
+			for (int x = dirty.nextDirty(0, y); x >= 0; x = dirty.nextDirty(x + 1, y)) {
+				int c = cells.getGlyph(x, y);
+				int fg = cells.getForeground(x, y);
+				drawnCells++;
+				// drawing a glyph without any pixel or with a transparent color leaves the background as it is
+				if (blankGlyphs[c] || (fg & 0xff) == 0)
+					continue;
+
+				if (fg != color) {
+					color = fg;
+					Color.rgba8888ToColor(paintColor, fg);
+					batch.setColor(paintColor);
+				}
+				batch.draw(glyphs[c], x * charWidth, (heightInCharacters - y - 1) * charHeight, charWidth, charHeight);
+				quads++;
+			}
+			dirty.clearRow(y);
+		}
+		batch.end();
+		drawCalls = batch.renderCalls;
+	}
+
+	/**
+	 * Draws the backgrounds of the dirty cells, merging equal neighbours into rectangles.
+	 * The runs of each row are matched against the rectangles still open from the row above,
+	 * a rectangle is drawn as soon as the row below doesn't continue it.
+	 */
+	private void paintBackgrounds(CellBuffer cells, DirtyCells dirty) {
+		int heightInCharacters = cells.getHeight();
+		int lastY = -2;
+		for (int y = dirty.nextDirtyRow(0); y >= 0; y = dirty.nextDirtyRow(y + 1)) {
+			if (y != lastY + 1)
+				closeRuns(0, lastY, heightInCharacters);
+
+			int open = 0;
+			for (int x = dirty.nextDirty(0, y); x >= 0; x = dirty.nextDirty(x, y)) {
+				int end = dirty.nextClean(x, y);
+				while (x < end) {
+					int bg = cells.getBackground(x, y);
+					int runEnd = x + 1;
+					while (runEnd < end && cells.getBackground(runEnd, y) == bg)
+						runEnd++;
+
+					// a transparent background blends to nothing
+					if ((bg & 0xff) != 0) {
+						while (open < openRuns.size && openRuns.get(open) < x) {
+							drawRun(open, lastY, heightInCharacters);
+							open += 4;
+						}
+						int top = y;
+						if (open < openRuns.size && openRuns.get(open) == x) {
+							if (openRuns.get(open + 1) == runEnd && openRuns.get(open + 3) == bg)
+								top = openRuns.get(open + 2);
+							else
+								drawRun(open, lastY, heightInCharacters);
+							open += 4;
+						}
+						nextRuns.add(x, runEnd, top, bg);
+					}
+					x = runEnd;
+				}
+			}
+			closeRuns(open, lastY, heightInCharacters);
+
+			IntArray swap = openRuns;
+			openRuns = nextRuns;
+			nextRuns = swap;
+			lastY = y;
+		}
+		closeRuns(0, lastY, heightInCharacters);
+	}
+
+	/**
+	 * Draws the open rectangles from the specified one on and forgets all of them.
+	 */
+	private void closeRuns(int from, int bottom, int heightInCharacters) {
+		for (int i = from; i < openRuns.size; i += 4)
+			drawRun(i, bottom, heightInCharacters);
+		openRuns.clear();
+	}
+
+	private void drawRun(int i, int bottom, int heightInCharacters) {
+		int x = openRuns.get(i);
+		int top = openRuns.get(i + 2);
+		Color.rgba8888ToColor(paintColor, openRuns.get(i + 3));
+		batch.setColor(paintColor);
+		batch.draw(backgroundTexture, x * charWidth, (heightInCharacters - bottom - 1) * charHeight,
+			(openRuns.get(i + 1) - x) * charWidth, (bottom - top + 1) * charHeight);
+		quads++;
+	}
+
+	@Override
+	public int getDrawnCells() {
+		return drawnCells;
+	}
+
+	@Override
+	public int getQuads() {
+		return quads;
+	}
+
+	@Override
+	public int getDrawCalls() {
+		return drawCalls;
+	}
+
+	@Override
+	public void dispose() {
+		// the batch and textures belong to the screen
+	}
+}
@@ -0,0 +1,360 @@
+package asciiscreen;
+
+/**
+ * Breaks text into lines that fit a box of cells: word wrap, alignment and truncation with an ellipsis.
+ * Lines are given as ranges of the text, so writing them needs no substrings.
+ * Layouts are kept in a least recently used cache keyed by the text, the box and the style,
+ * laying out text that is in the cache doesn't allocate anything.
+ * A layout is not thread-safe, see {@link AsciiScreen#writeText}.
+ */
+public class TextLayout {
+	/**
+	 * Lines start at the left of the box.
+	 */
+	public static final int ALIGN_LEFT = 0;
+	/**
+	 * Lines are centered in the box, an odd space left over goes to the right.
+	 */
+	public static final int ALIGN_CENTER = 1;
+	/**
+	 * Lines end at the right of the box.
+	 */
+	public static final int ALIGN_RIGHT = 2;
+	/**
+	 * Lines too long for the box break at the last space that fits, or within a word longer than the box.
+	 * Without it, every line of the text stays a single line and is cut off at the right of the box.
+	 */
+	public static final int WRAP = 4;
+	/**
+	 * Text that gets cut off, at the right or below the box, ends with {@link #ELLIPSIS_TEXT}.
+	 */
+	public static final int ELLIPSIS = 8;
+	/**
+	 * What marks the end of cut off text, code page 437 has no ellipsis character.
+	 */
+	public static final String ELLIPSIS_TEXT = "...";
+
+	private static final int ALIGN_MASK = 3;
+	private static final int STYLES = ALIGN_MASK | WRAP | ELLIPSIS;
+
+	/**
+	 * The lines of a layout, valid until the next call to {@link TextLayout#layout}.
+	 */
+	public static class Lines {
+		// four ints per line: start, end, x, ellipsis
+		private int[] lines = new int[16];
+		private int lineCount;
+		private boolean truncated;
+		// the cache key and links
+		private String text;
+		private int hash;
+		private int width;
+		private int height;
+		private int style;
+		private Lines next;
+		private Lines newer;
+		private Lines older;
+
+		public int getLineCount() {
+			return lineCount;
+		}
+
+		/**
+		 * Gets the index of a line's first character in the text.
+		 * @return
+		 */
+		public int getStart(int line) {
+			return lines[line * 4];
+		}
+
+		/**
+		 * Gets the index after a line's last character in the text.
+		 * @return
+		 */
+		public int getEnd(int line) {
+			return lines[line * 4 + 1];
+		}
+
+		/**
+		 * Gets the distance from the left of the box to the line.
+		 * @return
+		 */
+		public int getX(int line) {
+			return lines[line * 4 + 2];
+		}
+
+		/**
+		 * Gets the number of characters of {@link TextLayout#ELLIPSIS_TEXT} that follow the line.
+		 * @return
+		 */
+		public int getEllipsis(int line) {
+			return lines[line * 4 + 3];
+		}
+
+		/**
+		 * Gets whether some of the text didn't fit the box.
+		 * @return
+		 */
+		public boolean isTruncated() {
+			return truncated;
+		}
+
+		private void add(int start, int end, int ellipsis) {
+			if (lines.length < (lineCount + 1) * 4) {
+				int[] grown = new int[lines.length * 2];
+				System.arraycopy(lines, 0, grown, 0, lineCount * 4);
+				lines = grown;
+			}
+			lines[lineCount * 4] = start;
+			lines[lineCount * 4 + 1] = end;
+			lines[lineCount * 4 + 3] = ellipsis;
+			lineCount++;
+		}
+	}
+
+	private final int capacity;
+	private final Lines[] buckets;
+	// the most recently used layout is head.older, the least recently used head.newer
+	private final Lines head = new Lines();
+	private int size;
+	private int hits;
+	private int misses;
+
+	/**
+	 * @param capacity the number of layouts to keep
+	 */
+	public TextLayout(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity " + capacity + " must be greater than 0." );
+
+		this.capacity = capacity;
+		this.buckets = new Lines[Integer.highestOneBit(capacity * 2 - 1) * 2];
+		head.newer = head;
+		head.older = head;
+	}
+
+	/**
+	 * Lays out text in a box of cells, or gets the layout from the cache.
+	 * @param text   the text, a newline starts a new line
+	 * @param width  the width of the box
+	 * @param height the most lines to lay out, e.g. {@link Integer#MAX_VALUE}
+	 * @param style  an alignment combined with {@link #WRAP} and {@link #ELLIPSIS}
+	 * @return the lines, valid until the next call
+	 */
+	public Lines layout(CharSequence text, int width, int height, int style) {
+		if (text == null)
+			throw new NullPointerException("text must not be null." );
+
+		if (width < 1)
+			throw new IllegalArgumentException("width " + width + " must be greater than 0." );
+
+		if (height < 1)
+			throw new IllegalArgumentException("height " + height + " must be greater than 0." );
+
+		if ((style & ~STYLES) != 0 || (style & ALIGN_MASK) == ALIGN_MASK)
+			throw new IllegalArgumentException("style " + style + " must be an alignment combined with WRAP and ELLIPSIS." );
+
+		int hash = hash(text, width, height, style);
+		int bucket = hash & (buckets.length - 1);
+		for (Lines lines = buckets[bucket]; lines != null; lines = lines.next) {
+			if (lines.hash == hash && lines.width == width && lines.height == height && lines.style == style && lines.text.contentEquals(text)) {
+				hits++;
+				unlink(lines);
+				link(lines);
+				return lines;
+			}
+		}
+
+		misses++;
+		Lines lines;
+		if (size == capacity) {
+			lines = head.newer;
+			unlink(lines);
+			remove(lines);
+		} else {
+			lines = new Lines();
+			size++;
+		}
+		lines.text = text.toString();
+		lines.hash = hash;
+		lines.width = width;
+		lines.height = height;
+		lines.style = style;
+		lines.next = buckets[bucket];
+		buckets[bucket] = lines;
+		link(lines);
+		breakLines(lines, text, width, height, style);
+		return lines;
+	}
+
+	/**
+	 * Gets the number of layouts that were found in the cache.
+	 * @return
+	 */
+	public int getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets the number of layouts that had to be done.
+	 * @return
+	 */
+	public int getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Forgets all layouts.
+	 */
+	public void clear() {
+		for (int i = 0; i < buckets.length; i++)
+			buckets[i] = null;
+		head.newer = head;
+		head.older = head;
+		size = 0;
+	}
+
+	private static void breakLines(Lines lines, CharSequence text, int width, int height, int style) {
+		lines.lineCount = 0;
+		lines.truncated = false;
+		int length = text.length();
+		boolean wrap = (style & WRAP) != 0;
+		int ellipsis = (style & ELLIPSIS) != 0 ? Math.min(ELLIPSIS_TEXT.length(), width) : 0;
+		// whether text didn't fit below the box, as opposed to the right of it
+		boolean cutBelow = false;
+
+		int start = 0;
+		while (true) {
+			int paragraphEnd = start;
+			while (paragraphEnd < length && text.charAt(paragraphEnd) != '\n')
+				paragraphEnd++;
+
+			if (!wrap) {
+				if (paragraphEnd - start <= width) {
+					lines.add(start, paragraphEnd, 0);
+				} else {
+					lines.truncated = true;
+					lines.add(start, trimEnd(text, start, start + width - ellipsis), ellipsis);
+				}
+			} else {
+				int lineStart = start;
+				do {
+					// spaces where a line was broken don't start the next one
+					if (lineStart > start) {
+						while (lineStart < paragraphEnd && text.charAt(lineStart) == ' ')
+							lineStart++;
+						if (lineStart == paragraphEnd)
+							break;
+					}
+					if (paragraphEnd - lineStart <= width) {
+						lines.add(lineStart, trimEnd(text, lineStart, paragraphEnd), 0);
+						lineStart = paragraphEnd;
+					} else {
+						int space = lineStart + width;
+						while (space > lineStart && text.charAt(space) != ' ')
+							space--;
+						if (space == lineStart) {
+							lines.add(lineStart, lineStart + width, 0);
+							lineStart += width;
+						} else {
+							lines.add(lineStart, trimEnd(text, lineStart, space), 0);
+							lineStart = space + 1;
+						}
+					}
+				} while (lineStart < paragraphEnd && lines.lineCount < height);
+
+				if (lineStart < paragraphEnd && !isBlank(text, lineStart, paragraphEnd))
+					cutBelow = true;
+			}
+
+			if (paragraphEnd == length)
+				break;
+
+			if (lines.lineCount == height) {
+				// a trailing newline or blank lines below the box don't count as cut off text
+				cutBelow = !isBlank(text, paragraphEnd + 1, length);
+				break;
+			}
+			start = paragraphEnd + 1;
+		}
+
+		lines.truncated |= cutBelow;
+		if (cutBelow && ellipsis > 0) {
+			// the last line shows that more text follows, unless it was cut off at the right and shows that already
+			int last = (lines.lineCount - 1) * 4;
+			if (lines.lines[last + 3] == 0) {
+				int lineStart = lines.lines[last];
+				lines.lines[last + 1] = trimEnd(text, lineStart, Math.min(lines.lines[last + 1], lineStart + width - ellipsis));
+				lines.lines[last + 3] = ellipsis;
+			}
+		}
+
+		int align = style & ALIGN_MASK;
+		for (int i = 0; i < lines.lineCount * 4; i += 4) {
+			int space = width - (lines.lines[i + 1] - lines.lines[i]) - lines.lines[i + 3];
+			lines.lines[i + 2] = align == ALIGN_CENTER ? space / 2 : align == ALIGN_RIGHT ? space : 0;
+		}
+	}
+
+	private static int trimEnd(CharSequence text, int start, int end) {
+		while (end > start && text.charAt(end - 1) == ' ')
+			end--;
+		return end;
+	}
+
+	/**
+	 * Checks whether a range of the text holds nothing but spaces and newlines.
+	 */
+	private static boolean isBlank(CharSequence text, int start, int end) {
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			if (c != ' ' && c != '\n')
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Hashes the key, the text the same way {@link String#hashCode()} does, so strings can use their cached hash.
+	 */
+	private static int hash(CharSequence text, int width, int height, int style) {
+		int hash;
+		if (text instanceof String) {
+			hash = text.hashCode();
+		} else {
+			hash = 0;
+			for (int i = 0; i < text.length(); i++)
+				hash = 31 * hash + text.charAt(i);
+		}
+		hash = hash * 31 + width;
+		hash = hash * 31 + height;
+		hash = hash * 31 + style;
+		// spreads the high bits over the bucket index
+		return hash ^ (hash >>> 16);
+	}
+
+	private void remove(Lines lines) {
+		int bucket = lines.hash & (buckets.length - 1);
+		if (buckets[bucket] == lines) {
+			buckets[bucket] = lines.next;
+		} else {
+			Lines previous = buckets[bucket];
+			while (previous.next != lines)
+				previous = previous.next;
+			previous.next = lines.next;
+		}
+		lines.next = null;
+	}
+
+	private void link(Lines lines) {
+		lines.older = head.older;
+		lines.newer = head;
+		head.older.newer = lines;
+		head.older = lines;
+	}
+
+	private void unlink(Lines lines) {
+		lines.newer.older = lines.older;
+		lines.older.newer = lines.newer;
+	}
+}
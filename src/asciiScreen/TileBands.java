@@ -0,0 +1,47 @@
+package asciiscreen;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits a range of rows into bands that are worked on in parallel.
+ */
+class TileBands extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+
+	/**
+	 * The work done on a single band.
+	 */
+	interface Rows {
+		/**
+		 * @param startY the first row of the band
+		 * @param endY   the row after the last row of the band
+		 */
+		public void transform(int startY, int endY);
+	}
+
+	private final Rows rows;
+	private final int startY;
+	private final int endY;
+	private final int bandHeight;
+
+	/**
+	 * @param bandHeight the number of rows below which the band isn't split any further
+	 */
+	TileBands(Rows rows, int startY, int endY, int bandHeight) {
+		this.rows = rows;
+		this.startY = startY;
+		this.endY = endY;
+		this.bandHeight = bandHeight;
+	}
+
+	@Override
+	protected void compute() {
+		if (endY - startY <= bandHeight) {
+			rows.transform(startY, endY);
+			return;
+		}
+
+		int middle = (startY + endY) >>> 1;
+		invokeAll(new TileBands(rows, startY, middle, bandHeight), new TileBands(rows, middle, endY, bandHeight));
+	}
+}
@@ -0,0 +1,156 @@
+package asciiscreen;
+
+/**
+ * A map of packed cells that can be much larger than any screen, shown through {@link AsciiScreen#showMap(VirtualMap, int, int)}.
+ * The cells are kept in chunks of 64x64 that are only allocated once something is written to them,
+ * and every chunk counts its changes so a screen can tell which parts of the map it has to copy again.
+ * Cells hold glyph numbers rather than characters, see {@link AsciiFont#glyphOf(int)}.
+ */
+public class VirtualMap {
+	/**
+	 * The width and height of a chunk.
+	 */
+	public static final int CHUNK_SIZE = 64;
+	static final int CHUNK_SHIFT = 6;
+
+	private final int width;
+	private final int height;
+	private final int chunksX;
+	private final int chunksY;
+	private final CellBuffer[] chunks;
+	private final int[] versions;
+	private final int emptyGlyph;
+	private final int emptyForeground;
+	private final int emptyBackground;
+
+	/**
+	 * Creates a map where every cell is a space on black.
+	 * @param width
+	 * @param height
+	 */
+	public VirtualMap(int width, int height) {
+		this(width, height, ' ', ColorPalette.WHITE, ColorPalette.BLACK);
+	}
+
+	/**
+	 * Creates a map where every cell starts out with the specified values.
+	 * @param width
+	 * @param height
+	 * @param glyph      the glyph of an empty cell
+	 * @param foreground the packed foreground color of an empty cell
+	 * @param background the packed background color of an empty cell
+	 */
+	public VirtualMap(int width, int height, int glyph, int foreground, int background) {
+		if (width < 1)
+			throw new IllegalArgumentException("width " + width + " must be greater than 0." );
+
+		if (height < 1)
+			throw new IllegalArgumentException("height " + height + " must be greater than 0." );
+
+		this.width = width;
+		this.height = height;
+		this.chunksX = (width + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+		this.chunksY = (height + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+		this.chunks = new CellBuffer[chunksX * chunksY];
+		this.versions = new int[chunksX * chunksY];
+		this.emptyGlyph = glyph;
+		this.emptyForeground = foreground;
+		this.emptyBackground = background;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the number of chunks in a row of the map.
+	 * @return
+	 */
+	public int getChunksX() {
+		return chunksX;
+	}
+
+	/**
+	 * Gets the number of chunks in a column of the map.
+	 * @return
+	 */
+	public int getChunksY() {
+		return chunksY;
+	}
+
+	/**
+	 * Gets how often the cells of a chunk changed so far.
+	 * @param chunkX the column of the chunk
+	 * @param chunkY the row of the chunk
+	 * @return
+	 */
+	public int getVersion(int chunkX, int chunkY) {
+		return versions[chunkY * chunksX + chunkX];
+	}
+
+	/**
+	 * Stores a cell.
+	 * @param x          the distance from the left of the map
+	 * @param y          the distance from the top of the map
+	 * @param glyph      the glyph's number
+	 * @param foreground the packed foreground color
+	 * @param background the packed background color
+	 * @return this for convenient chaining of method calls
+	 */
+	public VirtualMap set(int x, int y, int glyph, int foreground, int background) {
+		if (x < 0 || x >= width)
+			throw new IllegalArgumentException("x " + x + " must be within range [0," + width + ")." );
+
+		if (y < 0 || y >= height)
+			throw new IllegalArgumentException("y " + y + " must be within range [0," + height + ")." );
+
+		int chunk = (y >>> CHUNK_SHIFT) * chunksX + (x >>> CHUNK_SHIFT);
+		if (chunks[chunk] == null) {
+			if (glyph == emptyGlyph && foreground == emptyForeground && background == emptyBackground)
+				return this;
+
+			chunks[chunk] = new ArrayCellBuffer(CHUNK_SIZE, CHUNK_SIZE);
+			chunks[chunk].fill(0, 0, CHUNK_SIZE, CHUNK_SIZE, emptyGlyph, emptyForeground, emptyBackground);
+		}
+		if (chunks[chunk].set(x & (CHUNK_SIZE - 1), y & (CHUNK_SIZE - 1), glyph, foreground, background))
+			versions[chunk]++;
+		return this;
+	}
+
+	/**
+	 * Gets the glyph of a cell, cells outside of the map are empty.
+	 * @return
+	 */
+	public int getGlyph(int x, int y) {
+		CellBuffer chunk = chunkAt(x, y);
+		return chunk == null ? emptyGlyph : chunk.getGlyph(x & (CHUNK_SIZE - 1), y & (CHUNK_SIZE - 1));
+	}
+
+	/**
+	 * Gets the packed foreground color of a cell, cells outside of the map are empty.
+	 * @return
+	 */
+	public int getForeground(int x, int y) {
+		CellBuffer chunk = chunkAt(x, y);
+		return chunk == null ? emptyForeground : chunk.getForeground(x & (CHUNK_SIZE - 1), y & (CHUNK_SIZE - 1));
+	}
+
+	/**
+	 * Gets the packed background color of a cell, cells outside of the map are empty.
+	 * @return
+	 */
+	public int getBackground(int x, int y) {
+		CellBuffer chunk = chunkAt(x, y);
+		return chunk == null ? emptyBackground : chunk.getBackground(x & (CHUNK_SIZE - 1), y & (CHUNK_SIZE - 1));
+	}
+
+	private CellBuffer chunkAt(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height)
+			return null;
+		return chunks[(y >>> CHUNK_SHIFT) * chunksX + (x >>> CHUNK_SHIFT)];
+	}
+}
@@ -0,0 +1,229 @@
+package asciiscreen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+class AnsiParserTest {
+	private static final int WIDTH = 10;
+	private static final int HEIGHT = 4;
+
+	private final AnsiParser parser = new AnsiParser(TestScreens.FONT, true);
+	private final CellBuffer cells = new ArrayCellBuffer(WIDTH, HEIGHT);
+	private final DirtyCells dirty = new DirtyCells(WIDTH, HEIGHT);
+
+	/**
+	 * A glyph the font maps a character to wins over the code page 437 look-alike,
+	 * which only stands in for characters the font has no glyph for.
+	 */
+	@Test
+	void fontMappingFirst() {
+		AsciiFont font = new AsciiFont("src/asciiScreen/cp437.png", 9, 16, 32, 256, 7, 7).map('░', 5);
+		AnsiParser parser = new AnsiParser(font, true);
+		CellBuffer cells = new ArrayCellBuffer(4, 1);
+		parser.parse("░▒A☺", cells, new DirtyCells(4, 1));
+		assertEquals(5, cells.getGlyph(0, 0));
+		assertEquals(0xb1, cells.getGlyph(1, 0));
+		assertEquals('A', cells.getGlyph(2, 0));
+		assertEquals(1, cells.getGlyph(3, 0));
+	}
+
+	@Test
+	void sixteenColors() {
+		parser.parse("\u001b[31mA\u001b[42mB\u001b[91;104mC\u001b[39;49mD", cells, dirty);
+		assertCell(0, 0, 'A', ColorPalette.RED, ColorPalette.BLACK);
+		assertCell(1, 0, 'B', ColorPalette.RED, ColorPalette.GREEN);
+		assertCell(2, 0, 'C', ColorPalette.BRIGHT_RED, ColorPalette.BRIGHT_BLUE);
+		assertCell(3, 0, 'D', ColorPalette.WHITE, ColorPalette.BLACK);
+	}
+
+	@Test
+	void colors256() {
+		parser.parse("\u001b[38;5;196;48;5;244mA\u001b[38;5;9;48;5;16mB", cells, dirty);
+		// 196 is red in the 6x6x6 cube, 244 a gray of the ramp
+		assertCell(0, 0, 'A', 0xff0000ff, 0x808080ff);
+		assertCell(1, 0, 'B', ColorPalette.BRIGHT_RED, 0x000000ff);
+	}
+
+	@Test
+	void trueColors() {
+		parser.parse("\u001b[38;2;255;128;0;48;2;1;2;3mA\u001b[38;2;300;0;999mB", cells, dirty);
+		assertCell(0, 0, 'A', 0xff8000ff, 0x010203ff);
+		// components beyond 255 are clamped
+		assertCell(1, 0, 'B', 0xff00ffff, 0x010203ff);
+	}
+
+	@Test
+	void colonSeparatesParameters() {
+		parser.parse("\u001b[38:5:196mA\u001b[48:2:1:2:3mB", cells, dirty);
+		assertCell(0, 0, 'A', 0xff0000ff, ColorPalette.BLACK);
+		assertCell(1, 0, 'B', 0xff0000ff, 0x010203ff);
+	}
+
+	/**
+	 * Bold brightens the first eight colors, not colors picked by number.
+	 */
+	@Test
+	void boldIsBright() {
+		parser.parse("\u001b[1;31mA\u001b[22mB\u001b[1;38;5;1mC\u001b[94mD", cells, dirty);
+		assertCell(0, 0, 'A', ColorPalette.BRIGHT_RED, ColorPalette.BLACK);
+		assertCell(1, 0, 'B', ColorPalette.RED, ColorPalette.BLACK);
+		assertCell(2, 0, 'C', ColorPalette.RED, ColorPalette.BLACK);
+		assertCell(3, 0, 'D', ColorPalette.BRIGHT_BLUE, ColorPalette.BLACK);
+	}
+
+	@Test
+	void inverseAndReset() {
+		parser.parse("\u001b[33;44;7mA\u001b[27mB\u001b[1;7mC\u001b[0mD\u001b[31;42mE\u001b[mF", cells, dirty);
+		assertCell(0, 0, 'A', ColorPalette.BLUE, ColorPalette.YELLOW);
+		assertCell(1, 0, 'B', ColorPalette.YELLOW, ColorPalette.BLUE);
+		assertCell(2, 0, 'C', ColorPalette.BLUE, ColorPalette.BRIGHT_YELLOW);
+		assertCell(3, 0, 'D', ColorPalette.WHITE, ColorPalette.BLACK);
+		// no parameter at all resets as well
+		assertCell(5, 0, 'F', ColorPalette.WHITE, ColorPalette.BLACK);
+	}
+
+	@Test
+	void movesTheCursor() {
+		parser.parse("\u001b[3;5HA\u001b[AB\u001b[2BC\u001b[3DD\u001b[2CE", cells, dirty);
+		assertEquals('A', cells.getGlyph(4, 2));
+		assertEquals('B', cells.getGlyph(5, 1));
+		assertEquals('C', cells.getGlyph(6, 3));
+		assertEquals('D', cells.getGlyph(4, 3));
+		assertEquals('E', cells.getGlyph(7, 3));
+
+		// a count of 0 moves by one, no position is the upper left corner
+		parser.parse("\u001b[0A\u001b[0D", cells, dirty);
+		assertCursor(7, 2);
+		parser.parse("\u001b[H", cells, dirty);
+		assertCursor(0, 0);
+	}
+
+	@Test
+	void clampsTheCursor() {
+		parser.parse("\u001b[99;99H", cells, dirty);
+		assertCursor(WIDTH - 1, HEIGHT - 1);
+		parser.parse("\u001b[99A", cells, dirty);
+		assertCursor(WIDTH - 1, 0);
+		parser.parse("\u001b[99D", cells, dirty);
+		assertCursor(0, 0);
+		parser.parse("\u001b[99B", cells, dirty);
+		assertCursor(0, HEIGHT - 1);
+		parser.parse("\u001b[99C", cells, dirty);
+		assertCursor(WIDTH - 1, HEIGHT - 1);
+	}
+
+	@Test
+	void erasesInDisplay() {
+		fill();
+		parser.parse("\u001b[2;5H\u001b[J", cells, dirty);
+		assertRows(
+			"xxxxxxxxxx",
+			"xxxx      ",
+			"          ",
+			"          ");
+
+		fill();
+		parser.parse("\u001b[1J", cells, dirty);
+		assertRows(
+			"          ",
+			"     xxxxx",
+			"xxxxxxxxxx",
+			"xxxxxxxxxx");
+
+		fill();
+		parser.parse("\u001b[44m\u001b[2J", cells, dirty);
+		assertRows(
+			"          ",
+			"          ",
+			"          ",
+			"          ");
+		// erased in the current background, the cursor stays
+		assertEquals(ColorPalette.BLUE, cells.getBackground(9, 3));
+		assertCursor(4, 1);
+	}
+
+	@Test
+	void erasesInLine() {
+		fill();
+		parser.parse("\u001b[2;5H\u001b[K\u001b[3;5H\u001b[1K\u001b[4;5H\u001b[2K", cells, dirty);
+		assertRows(
+			"xxxxxxxxxx",
+			"xxxx      ",
+			"     xxxxx",
+			"          ");
+	}
+
+	@Test
+	void lineFeedInTheLastRowScrolls() {
+		fill(' ');
+		parser.parse("a\nb\nc\nd\ne", cells, dirty);
+		assertRows(
+			"b         ",
+			"c         ",
+			"d         ",
+			"e         ");
+		assertCursor(1, HEIGHT - 1);
+		assertTrue(dirty.isDirty(0, 0));
+	}
+
+	@Test
+	void sequenceSplitAcrossCalls() {
+		parser.parse("\u001b", cells, dirty);
+		parser.parse("[3", cells, dirty);
+		parser.parse("1;4", cells, dirty);
+		parser.parse("4mA", cells, dirty);
+		assertCell(0, 0, 'A', ColorPalette.RED, ColorPalette.BLUE);
+	}
+
+	@Test
+	void utf8CharacterSplitAcrossCalls() {
+		// U+263A, the smiley that is glyph 1, is E2 98 BA in UTF-8
+		parser.parse(ByteBuffer.wrap(new byte[] { 'a', (byte)0xe2 }), cells, dirty);
+		parser.parse(ByteBuffer.wrap(new byte[] { (byte)0x98 }), cells, dirty);
+		parser.parse(ByteBuffer.wrap(new byte[] { (byte)0xba, 'b' }), cells, dirty);
+		assertEquals('a', cells.getGlyph(0, 0));
+		assertEquals(1, cells.getGlyph(1, 0));
+		assertEquals('b', cells.getGlyph(2, 0));
+
+		// a character cut short by the next one shows as unknown
+		parser.parse(ByteBuffer.wrap(new byte[] { (byte)0xe2, 'c' }), cells, dirty);
+		assertEquals('?', cells.getGlyph(3, 0));
+		assertEquals('c', cells.getGlyph(4, 0));
+	}
+
+	private void fill() {
+		fill('x');
+	}
+
+	private void fill(char character) {
+		for (int y = 0; y < HEIGHT; y++)
+			for (int x = 0; x < WIDTH; x++)
+				cells.set(x, y, character, ColorPalette.WHITE, ColorPalette.BLACK);
+	}
+
+	private void assertCell(int x, int y, char character, int foreground, int background) {
+		assertEquals(character, cells.getGlyph(x, y), "glyph at " + x + "," + y);
+		assertEquals(foreground, cells.getForeground(x, y), "foreground at " + x + "," + y);
+		assertEquals(background, cells.getBackground(x, y), "background at " + x + "," + y);
+	}
+
+	private void assertCursor(int x, int y) {
+		assertEquals(x, parser.getCursorX(), "cursor x");
+		assertEquals(y, parser.getCursorY(), "cursor y");
+	}
+
+	/**
+	 * Compares the glyphs of the first rows, the font maps every character below 256 to the glyph of the same number.
+	 */
+	private void assertRows(String... expected) {
+		for (int y = 0; y < expected.length; y++) {
+			StringBuilder actual = new StringBuilder();
+			for (int x = 0; x < WIDTH; x++)
+				actual.append((char)cells.getGlyph(x, y));
+			assertEquals(expected[y], actual.toString(), "row " + y);
+		}
+	}
+}
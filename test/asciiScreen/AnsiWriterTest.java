@@ -0,0 +1,233 @@
+package asciiscreen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Drives the writer from a bare cell buffer and its dirty cells and feeds what it writes to a small terminal emulator,
+ * which then has to show the same cells.
+ */
+class AnsiWriterTest {
+	private static final int WIDTH = 17;
+	private static final int HEIGHT = 7;
+
+	@Test
+	void trueColorDeltas() throws IOException {
+		run(true, 1);
+	}
+
+	@Test
+	void xtermColorDeltas() throws IOException {
+		run(false, 2);
+	}
+
+	@Test
+	void emptyDeltaWritesNothing() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		AnsiWriter writer = new AnsiWriter(Channels.newChannel(out), true);
+		CellBuffer cells = new ArrayCellBuffer(WIDTH, HEIGHT);
+		writer.writeSnapshot(cells);
+		out.reset();
+		writer.writeDelta(cells, new DirtyCells(WIDTH, HEIGHT));
+		assertEquals(0, out.size());
+	}
+
+	@Test
+	void singleCellDeltaIsShort() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		AnsiWriter writer = new AnsiWriter(Channels.newChannel(out), true);
+		CellBuffer cells = new ArrayCellBuffer(WIDTH, HEIGHT);
+		writer.writeSnapshot(cells);
+		out.reset();
+		DirtyCells dirty = new DirtyCells(WIDTH, HEIGHT);
+		cells.set(5, 3, 'x', cells.getForeground(5, 3), cells.getBackground(5, 3));
+		dirty.mark(5, 3);
+		writer.writeDelta(cells, dirty);
+		// the colors are known already, only the cursor moves: ESC [ 4 ; 6 H x
+		assertEquals("\u001b[4;6Hx", new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes a snapshot and then random changes as deltas, checking the emulated terminal after each frame.
+	 */
+	private void run(boolean trueColor, long seed) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		AnsiWriter writer = new AnsiWriter(Channels.newChannel(out), trueColor);
+		Terminal terminal = new Terminal(WIDTH, HEIGHT);
+		CellBuffer cells = new ArrayCellBuffer(WIDTH, HEIGHT);
+		DirtyCells dirty = new DirtyCells(WIDTH, HEIGHT);
+		Random random = new Random(seed);
+		// a few colors so neighbors often share them and the writer skips setting them
+		int[] colors = { 0x000000ff, 0xffffffff, 0x800000ff, 0x00ff00ff, 0x3366ccff, 0xbfbfbfff, 0x121212ff };
+		// the same packed color always has to end up as the same color on the terminal
+		Map<Integer, Integer> sent = new HashMap<Integer, Integer>();
+
+		fill(cells, random, colors, 0, 0, WIDTH, HEIGHT);
+		writer.writeSnapshot(cells);
+		terminal.feed(out.toByteArray());
+		out.reset();
+		check(terminal, cells, trueColor, sent);
+
+		for (int frame = 0; frame < 200; frame++) {
+			int changes = random.nextInt(12);
+			for (int i = 0; i < changes; i++) {
+				int width = 1 + random.nextInt(4);
+				int height = 1 + random.nextInt(2);
+				int x = random.nextInt(WIDTH - width + 1);
+				int y = random.nextInt(HEIGHT - height + 1);
+				fill(cells, random, colors, x, y, width, height);
+				dirty.mark(x, y, width, height);
+			}
+			writer.writeDelta(cells, dirty);
+			dirty.clear();
+			terminal.feed(out.toByteArray());
+			out.reset();
+			check(terminal, cells, trueColor, sent);
+		}
+	}
+
+	private static void fill(CellBuffer cells, Random random, int[] colors, int x, int y, int width, int height) {
+		for (int cy = y; cy < y + height; cy++) {
+			for (int cx = x; cx < x + width; cx++)
+				cells.set(cx, cy, random.nextInt(256), colors[random.nextInt(colors.length)], colors[random.nextInt(colors.length)]);
+		}
+	}
+
+	private static void check(Terminal terminal, CellBuffer cells, boolean trueColor, Map<Integer, Integer> sent) {
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				char expected = AnsiWriter.CP437.charAt(cells.getGlyph(x, y));
+				if (terminal.chars[y][x] != expected)
+					fail("cell " + x + "," + y + " shows " + terminal.chars[y][x] + " instead of " + expected + "." );
+				checkColor(terminal.foregrounds[y][x], cells.getForeground(x, y), trueColor, sent);
+				checkColor(terminal.backgrounds[y][x], cells.getBackground(x, y), trueColor, sent);
+			}
+		}
+	}
+
+	private static void checkColor(int shown, int color, boolean trueColor, Map<Integer, Integer> sent) {
+		if (trueColor) {
+			assertEquals(color >>> 8, shown);
+		} else {
+			assertTrue(shown >= 16 && shown < 256, "color " + shown + " isn't in the color cube or grays." );
+			Integer previous = sent.put(color, shown);
+			if (previous != null)
+				assertEquals(previous.intValue(), shown);
+		}
+	}
+
+	/**
+	 * Understands the little the writer sends: UTF-8 text, CR, LF, cursor position, cursor forward and colors.
+	 * The cursor stays on the last column after writing to it until the next character wraps it, as in xterm.
+	 * Colors are kept as 0xRRGGBB for truecolor or as the xterm color index.
+	 */
+	private static class Terminal {
+		final char[][] chars;
+		final int[][] foregrounds;
+		final int[][] backgrounds;
+		private final int width;
+		private final int height;
+		private int x;
+		private int y;
+		private boolean wrapPending;
+		private int foreground = -1;
+		private int background = -1;
+
+		Terminal(int width, int height) {
+			this.width = width;
+			this.height = height;
+			chars = new char[height][width];
+			foregrounds = new int[height][width];
+			backgrounds = new int[height][width];
+		}
+
+		void feed(byte[] bytes) {
+			String text = new String(bytes, StandardCharsets.UTF_8);
+			int i = 0;
+			while (i < text.length()) {
+				char c = text.charAt(i++);
+				if (c == 0x1b) {
+					if (text.charAt(i++) != '[')
+						fail("only CSI sequences are expected." );
+					int start = i;
+					while (text.charAt(i) < 0x40)
+						i++;
+					csi(text.substring(start, i), text.charAt(i++));
+				} else if (c == '\r') {
+					x = 0;
+					wrapPending = false;
+				} else if (c == '\n') {
+					y = Math.min(y + 1, height - 1);
+					wrapPending = false;
+				} else {
+					print(c);
+				}
+			}
+		}
+
+		private void print(char c) {
+			if (wrapPending) {
+				x = 0;
+				y = Math.min(y + 1, height - 1);
+				wrapPending = false;
+			}
+			if (foreground < 0 || background < 0)
+				fail("a character was written before the colors were set." );
+			chars[y][x] = c;
+			foregrounds[y][x] = foreground;
+			backgrounds[y][x] = background;
+			if (x == width - 1)
+				wrapPending = true;
+			else
+				x++;
+		}
+
+		private void csi(String parameters, char command) {
+			String[] split = parameters.isEmpty() ? new String[0] : parameters.split(";", -1);
+			int[] p = new int[split.length];
+			for (int i = 0; i < split.length; i++)
+				p[i] = split[i].isEmpty() ? 0 : Integer.parseInt(split[i]);
+			wrapPending = false;
+			switch (command) {
+			case 'H':
+				y = Math.min(Math.max(p.length > 0 ? p[0] : 1, 1), height) - 1;
+				x = Math.min(Math.max(p.length > 1 ? p[1] : 1, 1), width) - 1;
+				break;
+			case 'C':
+				x = Math.min(x + Math.max(p.length > 0 ? p[0] : 1, 1), width - 1);
+				break;
+			case 'm':
+				for (int i = 0; i < p.length; i++) {
+					int target = p[i];
+					if (target != 38 && target != 48)
+						fail("SGR " + target + " isn't expected." );
+					int color;
+					if (p[i + 1] == 2) {
+						color = p[i + 2] << 16 | p[i + 3] << 8 | p[i + 4];
+						i += 4;
+					} else {
+						color = p[i + 2];
+						i += 2;
+					}
+					if (target == 38)
+						foreground = color;
+					else
+						background = color;
+				}
+				break;
+			default:
+				fail("CSI " + command + " isn't expected." );
+			}
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package asciiscreen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.junit.jupiter.api.Test;
+
+class AsciiFontTest {
+	@Test
+	void mapMakesACopy() {
+		AsciiFont font = TestScreens.FONT;
+		AsciiFont mapped = font.map('╔', 201);
+		assertNotSame(font, mapped);
+		assertEquals(-1, font.glyphOf('╔'));
+		assertEquals(201, mapped.glyphOf('╔'));
+		assertEquals(-1, AsciiFont.CP437.glyphOf('╔'));
+	}
+
+	/**
+	 * A glyph below 256 whose own character was mapped elsewhere is reported as another character that maps to it.
+	 */
+	@Test
+	void charOfMapsBack() {
+		AsciiFont font = TestScreens.FONT.map('╔', 201).map(201, -1);
+		assertEquals('╔', font.charOf(201));
+		assertEquals(201, font.glyphOf(font.charOf(201)));
+
+		font = font.map(201, 201);
+		assertEquals(201, font.glyphOf(font.charOf(201)));
+	}
+
+	/**
+	 * Transforming tiles keeps glyphs no character maps to.
+	 */
+	@Test
+	void withEachTileKeepsUnmappedGlyphs() throws IOException {
+		AsciiFont font = TestScreens.FONT.map(201, -1);
+		SoftwareRasterizer rasterizer;
+		try (InputStream atlas = new FileInputStream(font.getPath())) {
+			rasterizer = SoftwareRasterizer.load(font, atlas, 4, 1);
+		}
+		CellBuffer cells = new ArrayCellBuffer(4, 1);
+		AsciiScreen screen = new AsciiScreen(cells, rasterizer);
+		screen.withEachPackedTile(new PackedTileTransformer() {
+			@Override
+			public void transformTile(int x, int y, PackedCharacterData data) {
+				data.glyph = 201;
+			}
+		});
+		screen.withEachTile(new TileTransformer() {
+			@Override
+			public void transformTile(int x, int y, AsciiCharacterData data) {
+				data.backgroundColor = AsciiScreen.blue;
+			}
+		});
+		assertEquals(201, cells.getGlyph(0, 0));
+		assertEquals(ColorPalette.BLUE, cells.getBackground(3, 0));
+	}
+}
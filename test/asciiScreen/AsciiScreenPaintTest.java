@@ -0,0 +1,242 @@
+package asciiscreen;
+
+import static asciiscreen.TestScreens.assertGolden;
+import static asciiscreen.TestScreens.assertSamePixels;
+import static asciiscreen.TestScreens.headless;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * Paints headless screens through the software rasterizer and compares the pixels,
+ * either against golden images or against a screen that got the same cells in a single paint.
+ */
+class AsciiScreenPaintTest {
+	@Test
+	void text() throws IOException {
+		AsciiScreen screen = headless(20, 8);
+		// the font maps code points to glyphs one to one, so the shade and box drawing glyphs go by their code page 437 numbers
+		screen.clear('\u00b0', AsciiScreen.blue, AsciiScreen.black);
+		screen.clear(' ', 1, 1, 18, 6, AsciiScreen.white, AsciiScreen.blue);
+		screen.write("\u00da\u00c4\u00c4\u00bf", 2, 2, AsciiScreen.brightYellow, AsciiScreen.blue);
+		screen.write("\u00c0\u00c4\u00c4\u00d9", 2, 3, AsciiScreen.brightYellow, AsciiScreen.blue);
+		screen.write("Hello", 7, 2, AsciiScreen.brightWhite, AsciiScreen.red);
+		screen.write('@', 13, 3, AsciiScreen.brightGreen, AsciiScreen.black);
+		screen.writeCenter("centered", 5, AsciiScreen.brightCyan, AsciiScreen.magenta);
+		screen.paint(0);
+		assertGolden("text", screen);
+	}
+
+	@Test
+	void layers() throws IOException {
+		AsciiScreen screen = headless(16, 6);
+		screen.clear('.', AsciiScreen.green, AsciiScreen.black);
+		int popup = screen.addLayer();
+		screen.setLayer(popup);
+		screen.clear(' ', 3, 1, 10, 4, AsciiScreen.white, AsciiScreen.blue);
+		// a transparent background lets the base layer's black show under the glyphs
+		screen.write("see", 2, 4, AsciiScreen.brightRed, new Color(0, 0, 0, 0));
+		screen.erase(5, 2, 3, 1);
+		screen.paint(0);
+		assertGolden("layers", screen);
+	}
+
+	@Test
+	void view() throws IOException {
+		AsciiScreen screen = headless(20, 6);
+		screen.clear();
+		AsciiView view = new AsciiView(screen, 2, 1, 12, 4);
+		view.clear(' ', 0, 0, 12, 4, AsciiScreen.black, AsciiScreen.cyan);
+		view.writeText("the quick brown fox jumps over the lazy dog", 0, 0, 12, 4, TextLayout.WRAP | TextLayout.ELLIPSIS | TextLayout.ALIGN_CENTER, AsciiScreen.brightWhite, AsciiScreen.cyan);
+		// clipped by the view's right edge
+		view.write("clipped text", 6, 3);
+		screen.paint(0);
+		assertGolden("view", screen);
+	}
+
+	/**
+	 * Painting after every change gives the same pixels as painting everything at once.
+	 */
+	@Test
+	void incrementalPaint() throws IOException {
+		AsciiScreen incremental = headless(24, 10);
+		AsciiScreen fresh = headless(24, 10);
+		AsciiScreen[] screens = { incremental, fresh };
+		for (AsciiScreen screen : screens) {
+			screen.clear('#', AsciiScreen.brightBlack, AsciiScreen.black);
+			if (screen == incremental)
+				screen.paint(0);
+			for (int y = 0; y < 10; y++)
+				screen.write("row " + y, y, y, AsciiScreen.brightYellow, AsciiScreen.red);
+			if (screen == incremental)
+				screen.paint(0);
+			screen.scroll(0, 0, 24, 10, 2, -1);
+			if (screen == incremental)
+				screen.paint(0);
+			screen.copyArea(0, 0, 8, 4, 14, 5);
+			screen.clear('~', 1, 7, 5, 2, AsciiScreen.cyan, AsciiScreen.blue);
+			screen.paint(0);
+		}
+		assertSamePixels(fresh.getRasterizer().getImage(), incremental.getRasterizer().getImage());
+	}
+
+	/**
+	 * Growing and shrinking the grid keeps the cells, and the pixels are those of a screen that had the final size all along.
+	 */
+	@Test
+	void resizeGrid() throws IOException {
+		AsciiScreen resized = headless(10, 4);
+		resized.clear('+', AsciiScreen.white, AsciiScreen.blue);
+		resized.write("resize", 1, 1, AsciiScreen.brightWhite, AsciiScreen.red);
+		resized.paint(0);
+		resized.resizeGrid(30, 12);
+		resized.paint(0);
+		resized.resizeGrid(12, 6);
+		resized.paint(0);
+		assertEquals(12 * 9, resized.getRasterizer().getWidth());
+		assertEquals(6 * 16, resized.getRasterizer().getHeight());
+
+		AsciiScreen fresh = headless(12, 6);
+		fresh.clear('+', 0, 0, 10, 4, AsciiScreen.white, AsciiScreen.blue);
+		fresh.write("resize", 1, 1, AsciiScreen.brightWhite, AsciiScreen.red);
+		// the cells the grid grew by take the defaults
+		fresh.paint(0);
+		assertSamePixels(fresh.getRasterizer().getImage(), resized.getRasterizer().getImage());
+	}
+
+	/**
+	 * A double buffered screen shows what was published, and only that.
+	 */
+	@Test
+	void doubleBuffered() throws IOException {
+		AsciiScreen single = headless(16, 5);
+		single.clear('-', AsciiScreen.white, AsciiScreen.black);
+		single.write("published", 2, 2, AsciiScreen.brightGreen, AsciiScreen.black);
+		single.paint(0);
+
+		AsciiScreen doubled = headless(16, 5);
+		doubled.setDoubleBuffered(true);
+		doubled.clear('-', AsciiScreen.white, AsciiScreen.black);
+		doubled.write("published", 2, 2, AsciiScreen.brightGreen, AsciiScreen.black);
+		doubled.publish();
+		doubled.write("unpublished", 0, 4, AsciiScreen.brightRed, AsciiScreen.black);
+		doubled.paint(0);
+		assertSamePixels(single.getRasterizer().getImage(), doubled.getRasterizer().getImage());
+	}
+
+	@Test
+	void renderRecordsStats() throws IOException {
+		AsciiScreen screen = headless(8, 3);
+		screen.setStatsEnabled(true);
+		screen.write("stats", 0, 0);
+		screen.render(0);
+		FrameStats stats = new FrameStats();
+		assertTrue(screen.getStatsHistory().get(0, stats));
+		assertEquals(8 * 3, stats.drawnCells);
+		assertEquals(0, stats.drawCalls);
+	}
+
+	/**
+	 * Only writes that got past checking their arguments count, and only while stats are on.
+	 */
+	@Test
+	void countsValidWriteCalls() throws IOException {
+		final AsciiScreen screen = headless(8, 3);
+		screen.write('a', 0, 0);
+		screen.setStatsEnabled(true);
+		screen.write('b', 1, 0);
+		screen.write("cd", 2, 0);
+		assertThrows(IllegalArgumentException.class, new Executable() {
+			@Override
+			public void execute() {
+				screen.write('e', 8, 0);
+			}
+		});
+		assertThrows(NullPointerException.class, new Executable() {
+			@Override
+			public void execute() {
+				screen.write((String)null, 0, 0);
+			}
+		});
+		screen.render(0);
+		FrameStats stats = new FrameStats();
+		assertTrue(screen.getStatsHistory().get(0, stats));
+		assertEquals(2, stats.writeCalls);
+	}
+
+	@Test
+	void headlessHasNoGL() throws IOException {
+		final AsciiScreen screen = headless(4, 2);
+		assertTrue(screen.isHeadless());
+		assertThrows(IllegalStateException.class, new Executable() {
+			@Override
+			public void execute() {
+				screen.setMeshRendering(true);
+			}
+		});
+		assertThrows(IllegalStateException.class, new Executable() {
+			@Override
+			public void execute() {
+				screen.setRenderOnDemand(true);
+			}
+		});
+		screen.dispose();
+		assertNull(screen.getRecorder());
+	}
+
+	@Test
+	void rasterizerMustFit() throws IOException {
+		final SoftwareRasterizer rasterizer = TestScreens.rasterizer(4, 2);
+		assertThrows(IllegalArgumentException.class, new Executable() {
+			@Override
+			public void execute() {
+				new AsciiScreen(new ArrayCellBuffer(5, 2), rasterizer);
+			}
+		});
+	}
+
+	/**
+	 * A grid wider or higher than the GL's textures can be is rejected before anything is created.
+	 */
+	@Test
+	void gridMustFitTexture() {
+		GL20 gl = Gdx.gl;
+		Gdx.gl = (GL20)Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class<?>[] { GL20.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("glGetIntegerv") && (Integer)args[0] == GL20.GL_MAX_TEXTURE_SIZE)
+					((IntBuffer)args[1]).put(0, 1024);
+				return null;
+			}
+		});
+		try {
+			assertThrows(IllegalArgumentException.class, new Executable() {
+				@Override
+				public void execute() {
+					// 114 characters of 9 pixels are 1026 pixels wide
+					new AsciiScreen(new ArrayCellBuffer(114, 10), TestScreens.FONT);
+				}
+			});
+			assertThrows(IllegalArgumentException.class, new Executable() {
+				@Override
+				public void execute() {
+					new AsciiScreen(new ArrayCellBuffer(10, 65), TestScreens.FONT);
+				}
+			});
+		} finally {
+			Gdx.gl = gl;
+		}
+	}
+}
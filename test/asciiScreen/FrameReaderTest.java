@@ -0,0 +1,79 @@
+package asciiscreen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+class FrameReaderTest {
+	@Test
+	void readsWhatWasWritten() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		FrameWriter writer = new FrameWriter(Channels.newChannel(out));
+		CellBuffer cells = new ArrayCellBuffer(9, 4);
+		cells.fill(0, 0, 9, 4, 'a', 0xffffffff, 0x000000ff);
+		writer.writeSnapshot(cells);
+		// every other cell changes, the longest a delta gets
+		DirtyCells dirty = new DirtyCells(9, 4);
+		for (int i = 0; i < 36; i += 2) {
+			cells.set(i % 9, i / 9, 0x7fff, i * 0x01020304, ~i);
+			dirty.mark(i % 9, i / 9);
+		}
+		writer.writeDelta(cells, dirty);
+
+		FrameReader reader = new FrameReader(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+		CellBuffer read = new ArrayCellBuffer(9, 4);
+		assertTrue(reader.readFrame(read, null));
+		assertTrue(reader.readFrame(read, null));
+		assertFalse(reader.readFrame(read, null));
+		for (int y = 0; y < 4; y++) {
+			for (int x = 0; x < 9; x++) {
+				assertEquals(cells.getGlyph(x, y), read.getGlyph(x, y));
+				assertEquals(cells.getForeground(x, y), read.getForeground(x, y));
+				assertEquals(cells.getBackground(x, y), read.getBackground(x, y));
+			}
+		}
+	}
+
+	/**
+	 * A corrupt length is rejected before a buffer of that size is allocated.
+	 */
+	@Test
+	void rejectsLengthBeyondScreen() {
+		ByteBuffer stream = header(80, 24);
+		stream.put(FrameWriter.SNAPSHOT).putInt(Integer.MAX_VALUE - 8);
+		assertCorrupt(stream, 80, 24);
+	}
+
+	@Test
+	void rejectsSizeOverflow() {
+		ByteBuffer stream = header(0x10000, 0x10000);
+		stream.put(FrameWriter.SNAPSHOT).putInt(1);
+		assertCorrupt(stream, 1, 1);
+	}
+
+	private static ByteBuffer header(int width, int height) {
+		ByteBuffer stream = ByteBuffer.allocate(FrameWriter.HEADER_BYTES + FrameWriter.FRAME_HEADER_BYTES);
+		stream.putInt(FrameWriter.MAGIC).putInt(width).putInt(height);
+		return stream;
+	}
+
+	private static void assertCorrupt(ByteBuffer stream, int width, int height) {
+		final FrameReader reader = new FrameReader(Channels.newChannel(new ByteArrayInputStream(stream.array())));
+		final CellBuffer cells = new ArrayCellBuffer(width, height);
+		assertThrows(IOException.class, new Executable() {
+			@Override
+			public void execute() throws IOException {
+				reader.readFrame(cells, null);
+			}
+		});
+	}
+}
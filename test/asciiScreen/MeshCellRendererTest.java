@@ -0,0 +1,75 @@
+package asciiscreen;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.glutils.HdpiMode;
+import com.badlogic.gdx.utils.ScreenUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Renders the same cells with the sprite batch and with the shader and compares the pixels, which must be the same.
+ * This needs a real GL context in a hidden window, so it is tagged gl and left out of gradle test.
+ * gradle glTest runs it, without a display under xvfb-run, and fails when there is no context.
+ */
+@Tag("gl")
+class MeshCellRendererTest {
+	private static final int WIDTH = 24;
+	private static final int HEIGHT = 8;
+
+	private byte[][] spriteBatchPixels = new byte[2][];
+	private byte[][] meshPixels = new byte[2][];
+	private boolean blendingRestored;
+
+	@Test
+	void matchesSpriteBatch() {
+		Lwjgl3ApplicationConfiguration config = new Lwjgl3ApplicationConfiguration();
+		config.setInitialVisible(false);
+		config.setHdpiMode(HdpiMode.Pixels);
+		config.setWindowedMode(WIDTH * 9, HEIGHT * 16);
+		config.setResizable(false);
+		new Lwjgl3Application(new ApplicationAdapter() {
+			@Override
+			public void create() {
+				renderTwice(TestScreens.FONT, false);
+				renderTwice(TestScreens.FONT, true);
+				Gdx.app.exit();
+			}
+		}, config);
+
+		assertTrue(blendingRestored, "blending wasn't enabled again after the shader drew." );
+		assertArrayEquals(spriteBatchPixels[0], meshPixels[0], "RGBA8888 frame buffer");
+		assertArrayEquals(spriteBatchPixels[1], meshPixels[1], "float frame buffer");
+	}
+
+	private void renderTwice(AsciiFont font, boolean floatFrameBuffer) {
+		int width = WIDTH * 9;
+		int height = HEIGHT * 16;
+		int i = floatFrameBuffer ? 1 : 0;
+		AsciiScreen screen = new AsciiScreen(new ArrayCellBuffer(WIDTH, HEIGHT), font);
+		screen.setFloatFrameBuffer(floatFrameBuffer);
+		screen.resize(width, height);
+		screen.clear('\u00b1', AsciiScreen.blue, AsciiScreen.black);
+		screen.write("sprite batch", 1, 1, AsciiScreen.brightWhite, AsciiScreen.red);
+		screen.write("and shader", 3, 3, AsciiScreen.brightYellow, AsciiScreen.green);
+		screen.clear(' ', 14, 4, 8, 3, AsciiScreen.white, AsciiScreen.magenta);
+		screen.writeCenter("alike", 6, AsciiScreen.brightCyan, AsciiScreen.brightBlack);
+
+		screen.render(0);
+		spriteBatchPixels[i] = ScreenUtils.getFrameBufferPixels(0, 0, width, height, false);
+
+		screen.setMeshRendering(true);
+		Gdx.gl.glEnable(GL20.GL_BLEND);
+		screen.paint(0);
+		blendingRestored = Gdx.gl.glIsEnabled(GL20.GL_BLEND);
+		screen.render(0);
+		meshPixels[i] = ScreenUtils.getFrameBufferPixels(0, 0, width, height, false);
+		screen.dispose();
+	}
+}
@@ -0,0 +1,72 @@
+package asciiscreen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.imageio.ImageIO;
+
+/**
+ * What the tests share: headless screens and golden images.
+ */
+final class TestScreens {
+	/**
+	 * The code page 437 font, loaded from the sources since tests run from the project's directory.
+	 */
+	static final AsciiFont FONT = new AsciiFont("src/asciiScreen/cp437.png", 9, 16, 32, 256, 7, 7);
+
+	private static final String GOLDEN_DIRECTORY = "test/asciiScreen/golden/";
+
+	private TestScreens() {
+	}
+
+	static SoftwareRasterizer rasterizer(int width, int height) throws IOException {
+		try (InputStream atlas = new FileInputStream(FONT.getPath())) {
+			return SoftwareRasterizer.load(FONT, atlas, width, height);
+		}
+	}
+
+	/**
+	 * Creates a screen that paints into a software rasterizer.
+	 */
+	static AsciiScreen headless(int width, int height) throws IOException {
+		return new AsciiScreen(new ArrayCellBuffer(width, height), rasterizer(width, height));
+	}
+
+	/**
+	 * Checks that the pixels of two images are exactly the same.
+	 */
+	static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+		assertEquals(expected.getWidth(), actual.getWidth(), "width");
+		assertEquals(expected.getHeight(), actual.getHeight(), "height");
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				if (expected.getRGB(x, y) != actual.getRGB(x, y))
+					fail("pixel " + x + "," + y + " is " + Integer.toHexString(actual.getRGB(x, y)) + " instead of " + Integer.toHexString(expected.getRGB(x, y)) + "." );
+			}
+		}
+	}
+
+	/**
+	 * Checks that a screen's pixels are exactly those of a golden image.
+	 * With -Dgolden.update=true, or if there is no golden image yet, the image is written instead,
+	 * a missing one also fails the test so it gets looked at before it is checked in.
+	 */
+	static void assertGolden(String name, AsciiScreen screen) throws IOException {
+		BufferedImage actual = screen.getRasterizer().getImage();
+		File golden = new File(GOLDEN_DIRECTORY + name + ".png");
+		boolean exists = golden.exists();
+		if (!exists || Boolean.getBoolean("golden.update")) {
+			golden.getParentFile().mkdirs();
+			ImageIO.write(actual, "png", golden);
+			if (!exists)
+				fail("golden image " + golden + " didn't exist and was written, check it and run the test again." );
+			return;
+		}
+		assertSamePixels(ImageIO.read(golden), actual);
+	}
+}
@@ -0,0 +1,117 @@
+package asciiscreen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TextLayoutTest {
+	private final TextLayout layout = new TextLayout(4);
+
+	@Test
+	void wrapsAtSpaces() {
+		String text = "the quick brown fox";
+		TextLayout.Lines lines = layout.layout(text, 10, Integer.MAX_VALUE, TextLayout.WRAP);
+		assertLines(text, lines, "the quick", "brown fox");
+		assertFalse(lines.isTruncated());
+	}
+
+	@Test
+	void breaksWordsLongerThanTheBox() {
+		String text = "abcdefghij kl";
+		TextLayout.Lines lines = layout.layout(text, 4, Integer.MAX_VALUE, TextLayout.WRAP);
+		assertLines(text, lines, "abcd", "efgh", "ij", "kl");
+	}
+
+	@Test
+	void keepsEmptyLines() {
+		String text = "a\n\nb";
+		assertLines(text, layout.layout(text, 4, Integer.MAX_VALUE, TextLayout.WRAP), "a", "", "b");
+	}
+
+	@Test
+	void cutsOffAtTheRight() {
+		String text = "abcdefgh";
+		TextLayout.Lines lines = layout.layout(text, 6, 1, TextLayout.ELLIPSIS);
+		assertLines(text, lines, "abc");
+		assertEquals(3, lines.getEllipsis(0));
+		assertTrue(lines.isTruncated());
+	}
+
+	@Test
+	void cutsOffBelow() {
+		String text = "one two three";
+		TextLayout.Lines lines = layout.layout(text, 5, 2, TextLayout.WRAP | TextLayout.ELLIPSIS);
+		assertLines(text, lines, "one", "tw");
+		assertEquals(3, lines.getEllipsis(1));
+		assertTrue(lines.isTruncated());
+	}
+
+	/**
+	 * A trailing newline or blank lines that don't fit aren't text that got cut off.
+	 */
+	@Test
+	void trailingNewlineIsNotTruncation() {
+		String text = "abc\n";
+		TextLayout.Lines lines = layout.layout(text, 5, 1, TextLayout.ELLIPSIS);
+		assertLines(text, lines, "abc");
+		assertEquals(0, lines.getEllipsis(0));
+		assertFalse(lines.isTruncated());
+
+		text = "abc\n  \n";
+		lines = layout.layout(text, 5, 1, TextLayout.WRAP | TextLayout.ELLIPSIS);
+		assertLines(text, lines, "abc");
+		assertFalse(lines.isTruncated());
+
+		text = "abc\nd";
+		lines = layout.layout(text, 5, 1, TextLayout.ELLIPSIS);
+		assertTrue(lines.isTruncated());
+	}
+
+	@Test
+	void aligns() {
+		String text = "ab\nabcd";
+		TextLayout.Lines center = layout.layout(text, 7, Integer.MAX_VALUE, TextLayout.ALIGN_CENTER);
+		assertEquals(2, center.getX(0));
+		assertEquals(1, center.getX(1));
+		TextLayout.Lines right = layout.layout(text, 7, Integer.MAX_VALUE, TextLayout.ALIGN_RIGHT);
+		assertEquals(5, right.getX(0));
+		assertEquals(3, right.getX(1));
+	}
+
+	@Test
+	void cachesLayouts() {
+		TextLayout.Lines lines = layout.layout("cached", 10, 1, 0);
+		assertSame(lines, layout.layout(new StringBuilder("cached"), 10, 1, 0));
+		assertEquals(1, layout.getHits());
+		assertEquals(1, layout.getMisses());
+
+		// the same text in another box or style is laid out anew
+		layout.layout("cached", 9, 1, 0);
+		layout.layout("cached", 10, 1, TextLayout.ALIGN_RIGHT);
+		assertEquals(3, layout.getMisses());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsed() {
+		for (int i = 0; i < 4; i++)
+			layout.layout("text " + i, 10, 1, 0);
+		// uses text 0 again, so text 1 is the least recently used
+		layout.layout("text 0", 10, 1, 0);
+		layout.layout("text 4", 10, 1, 0);
+		int misses = layout.getMisses();
+
+		layout.layout("text 0", 10, 1, 0);
+		assertEquals(misses, layout.getMisses());
+		layout.layout("text 1", 10, 1, 0);
+		assertEquals(misses + 1, layout.getMisses());
+	}
+
+	private static void assertLines(String text, TextLayout.Lines lines, String... expected) {
+		assertEquals(expected.length, lines.getLineCount(), "line count");
+		for (int i = 0; i < expected.length; i++)
+			assertEquals(expected[i], text.substring(lines.getStart(i), lines.getEnd(i)), "line " + i);
+	}
+}